@@ -42,6 +42,15 @@ data class ProgressIndication(val index: Int, val data: ByteArray?) {
     }
 }
 
+/**
+ * The aggregated upload or download progress.
+ *
+ * @property packets  The number of packets sent or received so far.
+ * @property bytes    The total length of those packets.
+ * @property complete True, if this is the last indication of the transfer.
+ */
+data class TransferProgress(val packets: Int, val bytes: Long, val complete: Boolean)
+
 /**
  * Adds a merger that will be used to merge multiple packets into a single Data.
  * The merger may modify each packet if necessary.
@@ -70,6 +79,40 @@ fun ReadRequest.mergeWithProgressFlow(merger: DataMerger): Flow<ProgressIndicati
     }
 }
 
+/**
+ * Adds a merger that will be used to merge multiple packets into a single Data.
+ * The merger may modify each packet if necessary.
+ *
+ * Unlike [mergeWithProgressFlow] without an interval, the returned flow is not notified for
+ * each packet, but when the given time has elapsed or the given number of bytes were received
+ * since the last indication, and always when the message is complete.
+ *
+ * @param interval the minimum time between indications, in milliseconds, or 0 to disable.
+ * @param byteStep the minimum number of bytes between indications, or 0 to disable.
+ * @return The flow with aggregated progress indications.
+ */
+fun ReadRequest.mergeWithProgressFlow(
+    merger: DataMerger,
+    interval: Long,
+    byteStep: Int = 0
+): Flow<TransferProgress> {
+    // Make sure the callbacks are called without unnecessary delay.
+    setHandler(null)
+    // Create a temporary callback that will be used to emit progress.
+    var callback: ((TransferProgress) -> Unit)? = null
+    // Set the merger and the progress callback, which will invoke the temporary callback.
+    merge(merger)
+    progress({ _, packets, bytes, complete ->
+        callback?.invoke(TransferProgress(packets, bytes, complete))
+    }, interval, byteStep)
+    // Return the callback flow. It will be closed when the request is complete or has failed.
+    return callbackFlow {
+        callback = { trySend(it) }
+        then { close() }
+        awaitClose { callback = null }
+    }
+}
+
 /**
  * Adds a merger that will be used to merge multiple packets into a single Data.
  * The merger may modify each packet if necessary.
@@ -98,6 +141,40 @@ fun WaitForValueChangedRequest.mergeWithProgressFlow(merger: DataMerger): Flow<P
     }
 }
 
+/**
+ * Adds a merger that will be used to merge multiple packets into a single Data.
+ * The merger may modify each packet if necessary.
+ *
+ * Unlike [mergeWithProgressFlow] without an interval, the returned flow is not notified for
+ * each packet, but when the given time has elapsed or the given number of bytes were received
+ * since the last indication, and always when the message is complete.
+ *
+ * @param interval the minimum time between indications, in milliseconds, or 0 to disable.
+ * @param byteStep the minimum number of bytes between indications, or 0 to disable.
+ * @return The flow with aggregated progress indications.
+ */
+fun WaitForValueChangedRequest.mergeWithProgressFlow(
+    merger: DataMerger,
+    interval: Long,
+    byteStep: Int = 0
+): Flow<TransferProgress> {
+    // Make sure the callbacks are called without unnecessary delay.
+    setHandler(null)
+    // Create a temporary callback that will be used to emit progress.
+    var callback: ((TransferProgress) -> Unit)? = null
+    // Set the merger and the progress callback, which will invoke the temporary callback.
+    merge(merger)
+    progress({ _, packets, bytes, complete ->
+        callback?.invoke(TransferProgress(packets, bytes, complete))
+    }, interval, byteStep)
+    // Return the callback flow. It will be closed when the request is complete or has failed.
+    return callbackFlow {
+        callback = { trySend(it) }
+        then { close() }
+        awaitClose { callback = null }
+    }
+}
+
 /**
  * Adds a merger that will be used to merge multiple packets into a single Data.
  * The merger may modify each packet if necessary.
@@ -126,6 +203,40 @@ fun ValueChangedCallback.mergeWithProgressFlow(merger: DataMerger): Flow<Progres
     }
 }
 
+/**
+ * Adds a merger that will be used to merge multiple packets into a single Data.
+ * The merger may modify each packet if necessary.
+ *
+ * Unlike [mergeWithProgressFlow] without an interval, the returned flow is not notified for
+ * each packet, but when the given time has elapsed or the given number of bytes were received
+ * since the last indication, and always when the message is complete.
+ *
+ * @param interval the minimum time between indications, in milliseconds, or 0 to disable.
+ * @param byteStep the minimum number of bytes between indications, or 0 to disable.
+ * @return The flow with aggregated progress indications.
+ */
+fun ValueChangedCallback.mergeWithProgressFlow(
+    merger: DataMerger,
+    interval: Long,
+    byteStep: Int = 0
+): Flow<TransferProgress> {
+    // Make sure the callbacks are called without unnecessary delay.
+    setHandler(null)
+    // Create a temporary callback that will be used to emit progress.
+    var callback: ((TransferProgress) -> Unit)? = null
+    // Set the merger and the progress callback, which will invoke the temporary callback.
+    merge(merger)
+    progress({ _, packets, bytes, complete ->
+        callback?.invoke(TransferProgress(packets, bytes, complete))
+    }, interval, byteStep)
+    // Return the callback flow. It will be closed when the request is complete or has failed.
+    return callbackFlow {
+        callback = { trySend(it) }
+        then { close() }
+        awaitClose { callback = null }
+    }
+}
+
 /**
  * Adds a default MTU splitter that will be used to cut given data into at-most MTU-3
  * bytes long packets.
@@ -166,6 +277,39 @@ fun WriteRequest.splitWithProgressFlow(splitter: DataSplitter): Flow<ProgressInd
     }
 }
 
+/**
+ * Adds a splitter that will be used to cut given data into multiple packets.
+ *
+ * Unlike [splitWithProgressFlow] without an interval, the returned flow is not notified for
+ * each packet, but when the given time has elapsed or the given number of bytes were sent
+ * since the last indication, and always when all packets were sent.
+ *
+ * @param interval the minimum time between indications, in milliseconds, or 0 to disable.
+ * @param byteStep the minimum number of bytes between indications, or 0 to disable.
+ * @return The flow with aggregated progress indications.
+ */
+fun WriteRequest.splitWithProgressFlow(
+    splitter: DataSplitter,
+    interval: Long,
+    byteStep: Int = 0
+): Flow<TransferProgress> {
+    // Make sure the callbacks are called without unnecessary delay.
+    setHandler(null)
+    // Create a temporary callback that will be used to emit progress.
+    var callback: ((TransferProgress) -> Unit)? = null
+    // Set the splitter and the progress callback, which will invoke the temporary callback.
+    split(splitter)
+    progress({ _, packets, bytes, complete ->
+        callback?.invoke(TransferProgress(packets, bytes, complete))
+    }, interval, byteStep)
+    // Return the callback flow. It will be closed when the request is complete or has failed.
+    return callbackFlow {
+        callback = { trySend(it) }
+        then { close() }
+        awaitClose { callback = null }
+    }
+}
+
 /**
  * Adds a default MTU splitter that will be used to cut given data into at-most MTU-3
  * bytes long packets.
@@ -204,4 +348,37 @@ fun WaitForReadRequest.splitWithProgressFlow(splitter: DataSplitter): Flow<Progr
         then { close() }
         awaitClose { callback = null }
     }
+}
+
+/**
+ * Adds a splitter that will be used to cut given data into multiple packets.
+ *
+ * Unlike [splitWithProgressFlow] without an interval, the returned flow is not notified for
+ * each packet, but when the given time has elapsed or the given number of bytes were sent
+ * since the last indication, and always when all packets were sent.
+ *
+ * @param interval the minimum time between indications, in milliseconds, or 0 to disable.
+ * @param byteStep the minimum number of bytes between indications, or 0 to disable.
+ * @return The flow with aggregated progress indications.
+ */
+fun WaitForReadRequest.splitWithProgressFlow(
+    splitter: DataSplitter,
+    interval: Long,
+    byteStep: Int = 0
+): Flow<TransferProgress> {
+    // Make sure the callbacks are called without unnecessary delay.
+    setHandler(null)
+    // Create a temporary callback that will be used to emit progress.
+    var callback: ((TransferProgress) -> Unit)? = null
+    // Set the splitter and the progress callback, which will invoke the temporary callback.
+    split(splitter)
+    progress({ _, packets, bytes, complete ->
+        callback?.invoke(TransferProgress(packets, bytes, complete))
+    }, interval, byteStep)
+    // Return the callback flow. It will be closed when the request is complete or has failed.
+    return callbackFlow {
+        callback = { trySend(it) }
+        then { close() }
+        awaitClose { callback = null }
+    }
 }
\ No newline at end of file
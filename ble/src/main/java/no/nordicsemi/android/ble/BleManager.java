@@ -55,9 +55,13 @@ import no.nordicsemi.android.ble.annotation.LogPriority;
 import no.nordicsemi.android.ble.annotation.PairingVariant;
 import no.nordicsemi.android.ble.annotation.PhyMask;
 import no.nordicsemi.android.ble.annotation.PhyOption;
+import no.nordicsemi.android.ble.annotation.QueueOverflowPolicy;
 import no.nordicsemi.android.ble.annotation.WriteType;
 import no.nordicsemi.android.ble.callback.ConnectionParametersUpdatedCallback;
+import no.nordicsemi.android.ble.callback.DataSentCallback;
+import no.nordicsemi.android.ble.callback.WriteProgressCallback;
 import no.nordicsemi.android.ble.data.DataProvider;
+import no.nordicsemi.android.ble.data.DataSource;
 import no.nordicsemi.android.ble.observer.BondingObserver;
 import no.nordicsemi.android.ble.observer.ConnectionObserver;
 import no.nordicsemi.android.ble.callback.ConnectionPriorityCallback;
@@ -68,6 +72,7 @@ import no.nordicsemi.android.ble.data.Data;
 import no.nordicsemi.android.ble.data.DataMerger;
 import no.nordicsemi.android.ble.data.DataSplitter;
 import no.nordicsemi.android.ble.error.GattError;
+import no.nordicsemi.android.ble.observer.QueueObserver;
 import no.nordicsemi.android.ble.utils.ILogger;
 import no.nordicsemi.android.ble.utils.ParserUtils;
 
@@ -122,6 +127,22 @@ public abstract class BleManager implements ILogger {
 	public static final int PAIRING_VARIANT_DISPLAY_PIN = 5;
 	public static final int PAIRING_VARIANT_OOB_CONSENT = 6;
 
+	/**
+	 * The thread enqueueing a request to a full queue is blocked until there is space.
+	 * When a request is enqueued from the thread executing requests, or from a callback,
+	 * it is rejected instead, as blocking would never end.
+	 */
+	public static final int QUEUE_OVERFLOW_BLOCK = 0;
+	/** Enqueueing a request to a full queue throws {@link IllegalStateException}. */
+	public static final int QUEUE_OVERFLOW_FAIL = 1;
+	/**
+	 * The oldest request with the same priority, which hasn't been started, is removed from
+	 * a full queue and fails with {@link FailCallback#REASON_QUEUE_FULL}.
+	 */
+	public static final int QUEUE_OVERFLOW_DROP_OLDEST = 2;
+	/** A request enqueued to a full queue fails with {@link FailCallback#REASON_QUEUE_FULL}. */
+	public static final int QUEUE_OVERFLOW_DROP_NEWEST = 3;
+
 	private final Context context;
 	private BleServerManager serverManager;
 	@NonNull
@@ -389,6 +410,53 @@ public abstract class BleManager implements ILogger {
 		return this.bondingObserver;
 	}
 
+	/**
+	 * Limits the number of requests waiting in the queue. The limit does not apply to
+	 * requests enqueued during the initialization, nor to ones in a
+	 * {@link RequestQueue}, which count as one.
+	 * <p>
+	 * A bounded queue protects the app from producing requests faster than they can be sent,
+	 * e.g. when sensor data are written to a device which has gone out of range.
+	 *
+	 * @param capacity the maximum number of requests in the queue, or 0 for an unbounded queue.
+	 * @param policy   the policy applied when a request is enqueued to a full queue.
+	 * @see #setQueueObserver(QueueObserver)
+	 */
+	public final void setRequestQueueCapacity(@IntRange(from = 0) final int capacity,
+											  @QueueOverflowPolicy final int policy) {
+		requestHandler.setRequestQueueCapacity(capacity, policy);
+	}
+
+	/**
+	 * Limits the number of requests targeting the given characteristic waiting in the queue.
+	 * This limit is applied in addition to the one set using
+	 * {@link #setRequestQueueCapacity(int, int)}.
+	 * <p>
+	 * <b>Note:</b> The characteristic is matched by reference, so the limit has to be set again
+	 * after services were discovered.
+	 *
+	 * @param characteristic the characteristic.
+	 * @param capacity       the maximum number of requests targeting the characteristic
+	 *                       in the queue, or 0 to remove the limit.
+	 * @param policy         the policy applied when the limit is reached.
+	 */
+	public final void setRequestQueueCapacity(@NonNull final BluetoothGattCharacteristic characteristic,
+											  @IntRange(from = 0) final int capacity,
+											  @QueueOverflowPolicy final int policy) {
+		requestHandler.setRequestQueueCapacity(characteristic, capacity, policy);
+	}
+
+	/**
+	 * Sets the observer, that will be notified when the number of requests in the queue changes.
+	 * Unlike other observers, this one is called on the thread which changed the queue.
+	 *
+	 * @param observer the observer.
+	 * @see QueueObserver
+	 */
+	public final void setQueueObserver(@Nullable final QueueObserver observer) {
+		requestHandler.setQueueObserver(observer);
+	}
+
 	/**
 	 * This method binds the manager with the give server instance. Apps that allow multiple
 	 * simultaneous connections and GATT server should use a single server instance, shared
@@ -1574,6 +1642,36 @@ public abstract class BleManager implements ILogger {
 				.setRequestHandler(requestHandler);
 	}
 
+	/**
+	 * Writes data read from the given source to the characteristic. The data are read lazily,
+	 * packet by packet, so only a few packets are kept in memory, no matter how large
+	 * the payload is. This allows sending large files, e.g. a firmware image, using
+	 * {@link DataSource#from(java.io.InputStream)} or
+	 * {@link DataSource#map(java.nio.channels.FileChannel, long, long)}.
+	 * <p>
+	 * The data are always split into packets of at most MTU-3 bytes. Use
+	 * {@link WriteRequest#split(WriteProgressCallback)} to get notified about each packet sent,
+	 * and {@link Request#cancel()} to stop sending. The source is closed when the request
+	 * finishes. If reading from the source fails, the request fails with
+	 * {@link FailCallback#REASON_REQUEST_FAILED}. As the data are not kept, the
+	 * {@link DataSentCallback} receives no value.
+	 * <p>
+	 * The returned request must be either enqueued using {@link Request#enqueue()} for
+	 * asynchronous use, or awaited using await() in synchronous execution.
+	 *
+	 * @param characteristic the characteristic to write to.
+	 * @param source         the source of data to be written to the characteristic.
+	 * @param writeType      the write type which is to be used.
+	 * @return The request.
+	 */
+	@NonNull
+	protected WriteRequest writeCharacteristic(@Nullable final BluetoothGattCharacteristic characteristic,
+											   @NonNull final DataSource source,
+											   @WriteType final int writeType) {
+		return Request.newWriteRequest(characteristic, source, writeType)
+				.setRequestHandler(requestHandler);
+	}
+
 	/**
 	 * Writes the given data to the characteristic. The write type is taken from the characteristic.
 	 * <p>
@@ -1946,6 +2044,247 @@ public abstract class BleManager implements ILogger {
 				.setRequestHandler(requestHandler);
 	}
 
+	/**
+	 * Begins a bulk transfer. Requests that should be sent over the fastest link
+	 * should be enqueued with {@link BulkTransferRequest#add(Operation)} instead of using
+	 * {@link Request#enqueue()}.
+	 * <p>
+	 * Before the first operation is executed, the library will request the highest MTU,
+	 * LE 2M PHY and {@link ConnectionPriorityRequest#CONNECTION_PRIORITY_HIGH high}
+	 * connection priority. When all operations were completed, or the transfer has failed or
+	 * was cancelled, the previous PHY and connection priority will be requested again.
+	 * Enqueueing a {@link BulkTransferRequest} without any operations does nothing.
+	 * <p>
+	 * Example of usage:
+	 * <pre>
+	 *     beginBulkTransfer()
+	 *           .add(writeCharacteristic(someCharacteristic, DataSource.from(stream), writeType)
+	 *                   .split())
+	 *           .with((device, bytes, bytesPerSecond) -> ...)
+	 *           .enqueue();
+	 * </pre>
+	 *
+	 * @return The request.
+	 */
+	@NonNull
+	protected BulkTransferRequest beginBulkTransfer() {
+		return Request.newBulkTransferRequest()
+				.setRequestHandler(requestHandler);
+	}
+
+	/**
+	 * Opens a reliable stream of messages sent using write without response to the given
+	 * characteristic and received as notifications from the other one. Packets are numbered
+	 * and acknowledged by the remote device, lost packets are retransmitted and messages are
+	 * delivered in order. The remote device must implement the same protocol,
+	 * see {@link ReliableStream}.
+	 * <p>
+	 * Notifications must be enabled using
+	 * {@link #enableNotifications(BluetoothGattCharacteristic)}. This method replaces the
+	 * notification callback of the characteristic. The stream is closed when the device
+	 * disconnects.
+	 *
+	 * @param writeCharacteristic  the characteristic used to send packets.
+	 * @param notifyCharacteristic the characteristic notifying received packets.
+	 * @return The stream.
+	 */
+	@NonNull
+	protected ReliableStream openReliableStream(@Nullable final BluetoothGattCharacteristic writeCharacteristic,
+												@Nullable final BluetoothGattCharacteristic notifyCharacteristic) {
+		final ReliableStream stream = new ReliableStream(new ReliableStream.Link() {
+			@Override
+			public void send(@NonNull final byte[] packet) {
+				writeCharacteristic(writeCharacteristic, packet,
+						BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE).enqueue();
+			}
+
+			@Override
+			public int getMaxPacketLength() {
+				return getMtu() - 3;
+			}
+		}, requestHandler);
+		setNotificationCallback(notifyCharacteristic)
+				.setHandler(null)
+				.with(stream::onPacketReceived)
+				.then(stream::close);
+		return stream;
+	}
+
+	/**
+	 * Opens a reliable stream of messages sent as notifications of the given server
+	 * characteristic and received as writes without response to the other one.
+	 * Packets are numbered and acknowledged by the remote device, lost packets are
+	 * retransmitted and messages are delivered in order. The remote device must implement
+	 * the same protocol, see {@link ReliableStream}.
+	 * <p>
+	 * The remote device must enable notifications before messages can be sent.
+	 * This method replaces the write callback of the characteristic. The stream is closed when
+	 * the device disconnects.
+	 *
+	 * @param serverNotifyCharacteristic the server characteristic used to send packets.
+	 * @param serverWriteCharacteristic  the server characteristic receiving packets.
+	 * @return The stream.
+	 */
+	@NonNull
+	protected ReliableStream openServerReliableStream(@Nullable final BluetoothGattCharacteristic serverNotifyCharacteristic,
+													  @Nullable final BluetoothGattCharacteristic serverWriteCharacteristic) {
+		final ReliableStream stream = new ReliableStream(new ReliableStream.Link() {
+			@Override
+			public void send(@NonNull final byte[] packet) {
+				sendNotification(serverNotifyCharacteristic, packet).enqueue();
+			}
+
+			@Override
+			public int getMaxPacketLength() {
+				return getMtu() - 3;
+			}
+		}, requestHandler);
+		setWriteCallback(serverWriteCharacteristic)
+				.setHandler(null)
+				.with(stream::onPacketReceived)
+				.then(stream::close);
+		return stream;
+	}
+
+	/**
+	 * Opens a channel for remote procedure calls. Commands are written to the given
+	 * characteristic, prefixed with a correlation ID, and responses starting with the same ID
+	 * are received as notifications from the other one. Unlike writing a command followed by
+	 * {@link #waitForNotification(BluetoothGattCharacteristic)}, the request queue is not blocked
+	 * while waiting for the response, and several calls may be in flight.
+	 * <p>
+	 * Example of usage:
+	 * <pre>
+	 *     rpc = openRpcChannel(commandCharacteristic, responseCharacteristic,
+	 *             BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE)
+	 *           .maxCallsInFlight(8);
+	 *     ...
+	 *     rpc.call(command)
+	 *           .with((device, response) -> ...)
+	 *           .fail((device, status) -> ...)
+	 *           .timeout(1000)
+	 *           .enqueue();
+	 * </pre>
+	 * Notifications must be enabled using
+	 * {@link #enableNotifications(BluetoothGattCharacteristic)}. This method replaces the
+	 * notification callback of the characteristic. The channel is closed when the device
+	 * disconnects.
+	 *
+	 * @param writeCharacteristic  the characteristic to which commands are written.
+	 * @param notifyCharacteristic the characteristic notifying responses.
+	 * @param writeType            the write type used to send commands.
+	 * @return The channel.
+	 */
+	@NonNull
+	protected RpcChannel openRpcChannel(@Nullable final BluetoothGattCharacteristic writeCharacteristic,
+										@Nullable final BluetoothGattCharacteristic notifyCharacteristic,
+										@WriteType final int writeType) {
+		final RpcChannel channel = new RpcChannel(new RpcChannel.Transport() {
+			@Override
+			public void send(@NonNull final byte[] packet, @NonNull final FailCallback callback) {
+				writeCharacteristic(writeCharacteristic, packet, writeType)
+						.fail(callback)
+						.enqueue();
+			}
+
+			@Nullable
+			@Override
+			public BluetoothDevice getDevice() {
+				return getBluetoothDevice();
+			}
+		}, requestHandler);
+		setNotificationCallback(notifyCharacteristic)
+				.setHandler(null)
+				.with(channel::onResponse)
+				.then(channel::close);
+		return channel;
+	}
+
+	/**
+	 * Opens a multiplexer of logical channels sharing a pair of characteristics. Messages are
+	 * written to the given characteristic and received as notifications from the other one.
+	 * Packets of messages sent on different channels are interleaved, so that a large message
+	 * does not delay messages on other channels. The remote device must use the same framing,
+	 * see {@link ChannelMultiplexer}.
+	 * <p>
+	 * Example of usage:
+	 * <pre>
+	 *     mux = openMultiplexer(txCharacteristic, rxCharacteristic,
+	 *             BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE);
+	 *     mux.channel(CONTROL).weight(4).with((device, data) -> ...);
+	 *     mux.channel(LOGS).with((device, data) -> ...);
+	 * </pre>
+	 * Notifications must be enabled using
+	 * {@link #enableNotifications(BluetoothGattCharacteristic)}. This method replaces the
+	 * notification callback of the characteristic.
+	 *
+	 * @param writeCharacteristic  the characteristic to which packets are written.
+	 * @param notifyCharacteristic the characteristic notifying received packets.
+	 * @param writeType            the write type used to send packets.
+	 * @return The multiplexer.
+	 */
+	@NonNull
+	protected ChannelMultiplexer openMultiplexer(@Nullable final BluetoothGattCharacteristic writeCharacteristic,
+												 @Nullable final BluetoothGattCharacteristic notifyCharacteristic,
+												 @WriteType final int writeType) {
+		final ChannelMultiplexer multiplexer = new ChannelMultiplexer(new ChannelMultiplexer.Link() {
+			@Override
+			public void send(@NonNull final byte[] packet,
+							 @NonNull final SuccessCallback sent, @NonNull final FailCallback failed) {
+				writeCharacteristic(writeCharacteristic, packet, writeType)
+						.done(sent)
+						.fail(failed)
+						.enqueue();
+			}
+
+			@Override
+			public int getMaxPacketLength() {
+				return getMtu() - 3;
+			}
+		}, requestHandler);
+		setNotificationCallback(notifyCharacteristic)
+				.setHandler(null)
+				.with(multiplexer::onPacketReceived)
+				.then(multiplexer::clear);
+		return multiplexer;
+	}
+
+	/**
+	 * Opens a multiplexer of logical channels sharing a pair of server characteristics.
+	 * Messages are sent as notifications of the given characteristic and received as writes
+	 * to the other one. See {@link #openMultiplexer(BluetoothGattCharacteristic, BluetoothGattCharacteristic, int)}.
+	 * <p>
+	 * This method replaces the write callback of the characteristic.
+	 *
+	 * @param serverNotifyCharacteristic the server characteristic used to send packets.
+	 * @param serverWriteCharacteristic  the server characteristic receiving packets.
+	 * @return The multiplexer.
+	 */
+	@NonNull
+	protected ChannelMultiplexer openServerMultiplexer(@Nullable final BluetoothGattCharacteristic serverNotifyCharacteristic,
+													   @Nullable final BluetoothGattCharacteristic serverWriteCharacteristic) {
+		final ChannelMultiplexer multiplexer = new ChannelMultiplexer(new ChannelMultiplexer.Link() {
+			@Override
+			public void send(@NonNull final byte[] packet,
+							 @NonNull final SuccessCallback sent, @NonNull final FailCallback failed) {
+				sendNotification(serverNotifyCharacteristic, packet)
+						.done(sent)
+						.fail(failed)
+						.enqueue();
+			}
+
+			@Override
+			public int getMaxPacketLength() {
+				return getMtu() - 3;
+			}
+		}, requestHandler);
+		setWriteCallback(serverWriteCharacteristic)
+				.setHandler(null)
+				.with(multiplexer::onPacketReceived)
+				.then(multiplexer::clear);
+		return multiplexer;
+	}
+
 	/**
 	 * Returns true if {@link BluetoothGatt#beginReliableWrite()} has been called and
 	 * the Reliable Write hasn't been executed nor aborted yet.
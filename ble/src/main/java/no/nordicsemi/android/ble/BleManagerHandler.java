@@ -36,11 +36,11 @@ import java.security.InvalidParameterException;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.UUID;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import no.nordicsemi.android.ble.annotation.ConnectionPriority;
 import no.nordicsemi.android.ble.annotation.ConnectionState;
@@ -59,6 +59,7 @@ import no.nordicsemi.android.ble.data.DataProvider;
 import no.nordicsemi.android.ble.error.GattError;
 import no.nordicsemi.android.ble.observer.BondingObserver;
 import no.nordicsemi.android.ble.observer.ConnectionObserver;
+import no.nordicsemi.android.ble.observer.QueueObserver;
 import no.nordicsemi.android.ble.utils.ParserUtils;
 
 @SuppressLint("MissingPermission")
@@ -88,7 +89,13 @@ abstract class BleManagerHandler extends RequestHandler {
 	private BleServerManager serverManager;
 	private Handler handler;
 
-	private final Deque<Request> taskQueue = new LinkedBlockingDeque<>();
+	private final TaskQueue taskQueue = new TaskQueue();
+	/** The last single-flight read of each attribute, which other reads may join. */
+	private final Map<Object, ReadRequest> singleFlightReads = new HashMap<>();
+	/**
+	 * Number of {@link #dispatch()} calls made while another one was in progress.
+	 */
+	private final AtomicInteger dispatchRequests = new AtomicInteger();
 	private Deque<Request> initQueue;
 	private boolean initialization;
 
@@ -134,6 +141,15 @@ abstract class BleManagerHandler extends RequestHandler {
 	 * A flag indicating that an operation is currently in progress.
 	 */
 	private boolean operationInProgress;
+	/**
+	 * Flag set when {@link #nextRequest(boolean)} is being executed. Nested calls
+	 * set {@link #nextRequestPending} instead of recursing.
+	 */
+	private boolean nextRequestInProgress;
+	/**
+	 * Flags set when {@link #nextRequest(boolean)} was called while already in progress.
+	 */
+	private boolean nextRequestPending, nextRequestForced;
 	/**
 	 * This flag is set to false only when the {@link ConnectRequest#shouldAutoConnect()} method
 	 * returns true and the device got disconnected without calling {@link BleManager#disconnect()}
@@ -180,6 +196,10 @@ abstract class BleManagerHandler extends RequestHandler {
 	 * Current connection parameters. Those values are only available starting from Android Oreo.
 	 */
 	private int interval, latency, timeout;
+	/**
+	 * Chooses packet length of adaptive write requests based on the link parameters.
+	 */
+	private final LinkPacer linkPacer = new LinkPacer();
 	/**
 	 * Samsung S8 with Android 9 fails to reconnect to devices requesting PHY LE 2M just after
 	 * connection. Workaround would be to disable PHY LE 2M on the device side.
@@ -212,6 +232,17 @@ abstract class BleManagerHandler extends RequestHandler {
 	 * after the initialization requests are done.
 	 */
 	private ConnectRequest connectRequest;
+	/**
+	 * The admission controller used by the last {@link ConnectRequest}, if any.
+	 */
+	@Nullable
+	private ConnectionAdmissionController admissionController;
+	/**
+	 * The ticket obtained from the {@link #admissionController} for the current connection
+	 * attempt, or null.
+	 */
+	@Nullable
+	private ConnectionAdmissionController.Ticket admissionTicket;
 	/**
 	 * Currently performed request or null in idle state.
 	 */
@@ -525,6 +556,7 @@ abstract class BleManagerHandler extends RequestHandler {
 	 * Closes and releases resources.
 	 */
 	void close() {
+		releaseAdmission();
 		try {
 			final Context context = manager.getContext();
 			context.unregisterReceiver(bluetoothStateBroadcastReceiver);
@@ -564,6 +596,7 @@ abstract class BleManagerHandler extends RequestHandler {
 			connectionState = BluetoothProfile.STATE_DISCONNECTED;
 			mtu = 23;
 			interval = latency = timeout = 0;
+			linkPacer.reset();
 			if (wasConnected && oldBluetoothDevice != null) {
 				postCallback(c -> c.onDeviceDisconnected(oldBluetoothDevice));
 				postConnectionStateChange(o -> o.onDeviceDisconnected(oldBluetoothDevice, ConnectionObserver.REASON_SUCCESS));
@@ -586,7 +619,7 @@ abstract class BleManagerHandler extends RequestHandler {
 			}
 			initQueue = null;
 		}
-		for (final Request task : taskQueue) {
+		for (final Request task : taskQueue.drain()) {
 			if (oldBluetoothDevice != null) {
 				if (status == FailCallback.REASON_BLUETOOTH_DISABLED ||
 						task.characteristic != null ||
@@ -599,7 +632,9 @@ abstract class BleManagerHandler extends RequestHandler {
 				task.notifyInvalidRequest();
 			}
 		}
-		taskQueue.clear();
+		synchronized (singleFlightReads) {
+			singleFlightReads.clear();
+		}
 	}
 
 	public BluetoothDevice getBluetoothDevice() {
@@ -795,7 +830,51 @@ abstract class BleManagerHandler extends RequestHandler {
 		return true;
 	}
 
+	/**
+	 * Starts the connection attempt when it's admitted by the admission controller set in the
+	 * request. Without a controller, or if the connection will be created in the background
+	 * using autoConnect, the attempt is started immediately.
+	 *
+	 * @return The result of {@link #internalConnect(BluetoothDevice, ConnectRequest)}, or true
+	 * if the attempt is waiting for admission.
+	 */
+	private boolean connectWhenAdmitted(@NonNull final BluetoothDevice device,
+										@NonNull final ConnectRequest cr) {
+		final ConnectionAdmissionController controller = cr.getAdmissionController();
+		admissionController = controller;
+		final boolean direct = !connected && !(bluetoothGatt != null && initialConnection)
+				&& (!cr.shouldAutoConnect() || cr.shouldAutoConnectCreateDirectConnectionFirst());
+		// A slot taken by a previous attempt is no longer needed.
+		releaseAdmission();
+		if (controller == null || !direct)
+			return internalConnect(device, cr);
+
+		log(Log.VERBOSE, () -> "Waiting for connection admission...");
+		admissionTicket = controller.request(device, () -> post(() -> {
+			// Check if the request wasn't cancelled or replaced in the meantime.
+			if (cr != connectRequest || cr.finished) {
+				// A request which replaced this one has already released the slot.
+				if (connectRequest == null || connectRequest == cr)
+					releaseAdmission();
+				return;
+			}
+			log(Log.DEBUG, () -> "Connection admitted");
+			// Release the slot if no connection state change callback will follow.
+			if (!internalConnect(device, cr) || connectionState != BluetoothGatt.STATE_CONNECTING)
+				releaseAdmission();
+		}));
+		return true;
+	}
+
+	private void releaseAdmission() {
+		final ConnectionAdmissionController.Ticket ticket = admissionTicket;
+		admissionTicket = null;
+		if (ticket != null)
+			ticket.release();
+	}
+
 	private void internalDisconnect(final int reason) {
+		releaseAdmission();
 		userDisconnected = true;
 		initialConnection = false;
 		ready = false;
@@ -1639,8 +1718,10 @@ abstract class BleManagerHandler extends RequestHandler {
 	private void enqueueFirst(@NonNull final Request request) {
 		final RequestQueue rq = requestQueue;
 		if (rq == null) {
-			final Deque<Request> queue = initialization && initQueue != null ? initQueue : taskQueue;
-			queue.addFirst(request);
+			if (initialization && initQueue != null)
+				initQueue.addFirst(request);
+			else
+				taskQueue.addFirst(request);
 		} else {
 			rq.addFirst(request);
 		}
@@ -1657,11 +1738,141 @@ abstract class BleManagerHandler extends RequestHandler {
 	@Override
 	final void enqueue(@NonNull final Request request) {
 		if (!request.enqueued) {
-			final Deque<Request> queue = initialization && initQueue != null ? initQueue : taskQueue;
-			queue.add(request);
-			request.enqueued = true;
+			request.notifyEnqueued();
+			final Request superseded;
+			if (initialization && initQueue != null) {
+				initQueue.add(request);
+			} else if (request instanceof final ReadRequest rr && rr.isSingleFlight() && joinRead(rr)) {
+				log(Log.DEBUG, () -> "Read joined a pending read of the same attribute");
+			} else if (request instanceof final WriteRequest wr && wr.isCoalescing()
+					&& (superseded = taskQueue.replace(wr)) != null) {
+				log(Log.DEBUG, () -> "Queued write superseded by a newer value");
+				failUnexecuted(superseded, FailCallback.REASON_SUPERSEDED);
+			} else {
+				// Blocking is not allowed on the thread which executes requests,
+				// as it's the one that frees space in the queue.
+				final boolean canBlock = !Thread.holdsLock(this)
+						&& handler.getLooper().getThread() != Thread.currentThread();
+				final List<Request> rejected;
+				try {
+					rejected = taskQueue.add(request, canBlock);
+				} catch (final IllegalStateException e) {
+					request.enqueued = false;
+					throw e;
+				}
+				for (final Request r : rejected) {
+					log(Log.WARN, () -> "Request queue full, " + (r == request ? "new" : "oldest") + " request rejected");
+					failUnexecuted(r, FailCallback.REASON_QUEUE_FULL);
+				}
+			}
+		}
+		dispatch();
+	}
+
+	/**
+	 * Attaches the given single-flight read to a pending read of the same attribute.
+	 * If there is none, the request becomes the one others may join.
+	 *
+	 * @param request the read request.
+	 * @return True if the request has joined another one and must not be enqueued.
+	 */
+	private boolean joinRead(@NonNull final ReadRequest request) {
+		final Object attribute = getAttribute(request);
+		if (attribute == null)
+			return false;
+		synchronized (singleFlightReads) {
+			final ReadRequest pending = singleFlightReads.get(attribute);
+			if (pending != null && pending.join(request))
+				return true;
+			singleFlightReads.put(attribute, request);
+			return false;
+		}
+	}
+
+	@Nullable
+	private static Object getAttribute(@NonNull final ReadRequest request) {
+		return request.characteristic != null ? request.characteristic : request.descriptor;
+	}
+
+	@Override
+	final void handOver(@NonNull final ReadRequest request) {
+		final ReadRequest successor;
+		// Synchronized with nextRequest(), so that the read is not started in the meantime.
+		synchronized (this) {
+			if (request.finished)
+				return;
+			successor = request.handOver();
+			if (successor == null)
+				return;
+			final Object attribute = getAttribute(request);
+			synchronized (singleFlightReads) {
+				singleFlightReads.replace(attribute, request, successor);
+			}
+			if (request.started) {
+				// The read in progress will be cancelled, the successor reads the value again.
+				taskQueue.addFirst(successor);
+			} else {
+				taskQueue.replace(request, successor);
+				request.cancelled = true;
+				failUnexecuted(request, FailCallback.REASON_CANCELLED);
+			}
+		}
+		log(Log.DEBUG, () -> "Cancelled read handed over to a joined request");
+	}
+
+	@Override
+	final void onReadClosed(@NonNull final ReadRequest request) {
+		final Object attribute = getAttribute(request);
+		if (attribute == null)
+			return;
+		synchronized (singleFlightReads) {
+			singleFlightReads.remove(attribute, request);
+		}
+	}
+
+	final void setRequestQueueCapacity(final int capacity, final int policy) {
+		taskQueue.setCapacity(capacity, policy);
+	}
+
+	final void setRequestQueueCapacity(@NonNull final BluetoothGattCharacteristic characteristic,
+									   final int capacity, final int policy) {
+		taskQueue.setCapacity(characteristic, capacity, policy);
+	}
+
+	final void setQueueObserver(@Nullable final QueueObserver observer) {
+		taskQueue.setObserver(observer);
+	}
+
+	/**
+	 * Fails a request which was removed from the queue without being executed.
+	 *
+	 * @param request the request.
+	 * @param status  the reason, one of FailCallback.REASON_* constants.
+	 */
+	private void failUnexecuted(@NonNull final Request request, final int status) {
+		final BluetoothDevice target = request instanceof final ConnectRequest cr ?
+				cr.getDevice() : bluetoothDevice;
+		if (target != null) {
+			request.notifyFail(target, status);
+		} else {
+			request.notifyInvalidRequest();
 		}
-		nextRequest(false);
+	}
+
+	/**
+	 * Starts the next request, unless another thread is already doing so. In that case
+	 * the other thread will call {@link #nextRequest(boolean)} once more after it's done,
+	 * so that requests enqueued in the meantime are not missed. This way threads enqueuing
+	 * requests concurrently don't block on the handler.
+	 */
+	private void dispatch() {
+		if (dispatchRequests.getAndIncrement() != 0)
+			return;
+		int missed = 1;
+		do {
+			nextRequest(false);
+			missed = dispatchRequests.addAndGet(-missed);
+		} while (missed != 0);
 	}
 
 	@Override
@@ -1703,6 +1914,10 @@ abstract class BleManagerHandler extends RequestHandler {
 			// Instead of notifying failure, we will remove all enqueued tasks and
 			// let the nextRequest to sent Abort command.
 			rwr.notifyAndCancelQueue(device);
+		} else if (requestQueue instanceof final BulkTransferRequest btr) {
+			// The link parameters have to be restored after cancellation. The queue will
+			// return the restore requests when it's done.
+			btr.notifyFail(device, FailCallback.REASON_CANCELLED);
 		} else if (requestQueue != null) {
 			requestQueue.notifyFail(device, FailCallback.REASON_CANCELLED);
 			requestQueue = null;
@@ -1745,12 +1960,7 @@ abstract class BleManagerHandler extends RequestHandler {
 
 	@Override
 	public void postDelayed(@NonNull final Runnable r, final long delayMillis) {
-		new Timer().schedule(new TimerTask() {
-			@Override
-			public void run() {
-				r.run();
-			}
-		}, delayMillis);
+		handler.postDelayed(r, delayMillis);
 	}
 
 	@Override
@@ -1991,6 +2201,7 @@ abstract class BleManagerHandler extends RequestHandler {
 		deviceNotSupported = false;
 		mtu = 23;
 		interval = latency = timeout = 0;
+		linkPacer.reset();
 		connectionState = BluetoothGatt.STATE_DISCONNECTED;
 		checkCondition();
 		if (!wasConnected) {
@@ -2197,6 +2408,11 @@ abstract class BleManagerHandler extends RequestHandler {
 					"[Callback] Connection state changed with status: " + status +
 					" and new state: " + newState + " (" + ParserUtils.stateToString(newState) + ")");
 
+			// The pending connection attempt has finished, let another one start.
+			final ConnectionAdmissionController.Ticket ticket = admissionTicket;
+			if (ticket != null && ticket.isAdmitted())
+				releaseAdmission();
+
 			if (status == BluetoothGatt.GATT_SUCCESS && newState == BluetoothProfile.STATE_CONNECTED) {
 				// Sometimes, when a notification/indication is received after the device got
 				// disconnected, the Android calls onConnectionStateChanged again, with state
@@ -2270,7 +2486,7 @@ abstract class BleManagerHandler extends RequestHandler {
 						postDelayed(() -> {
                             // fix: check if cr is not changed after delay
                             if(cr == connectRequest) {
-                                internalConnect(gatt.getDevice(), cr);
+                                connectWhenAdmitted(gatt.getDevice(), cr);
                                 // If ConnectRequest was cancelled during wait(200) in internalConnect(),
                                 // the gatt will be null, but the state is still CONNECTING.
                                 // We need to notify observers about cancellation.
@@ -2420,7 +2636,7 @@ abstract class BleManagerHandler extends RequestHandler {
 					if (deprecatedApiUsed) {
 						for (final Request request : initQueue) {
 							request.setRequestHandler(BleManagerHandler.this);
-							request.enqueued = true;
+							request.notifyEnqueued();
 						}
 					}
 
@@ -2907,6 +3123,8 @@ abstract class BleManagerHandler extends RequestHandler {
 				BleManagerHandler.this.interval = interval;
 				BleManagerHandler.this.latency = latency;
 				BleManagerHandler.this.timeout = timeout;
+				if (linkPacer.setInterval(interval) && request instanceof final WriteRequest wr && wr.isAdaptive())
+					log(Log.DEBUG, () -> "Adapting packet length to the new connection interval");
 				// Notify the listener, if set.
 				BleManagerHandler.this.onConnectionUpdated(gatt, interval, latency, timeout);
 				final ConnectionParametersUpdatedCallback cpuc = connectionParametersUpdatedCallback;
@@ -2965,6 +3183,7 @@ abstract class BleManagerHandler extends RequestHandler {
 				// Samsung S8 fails to reconnect when PHY LE 2M request is sent before service discovery.
 				earlyPhyLe2MRequest = earlyPhyLe2MRequest ||
 						(txPhy == BluetoothDevice.PHY_LE_2M && !servicesDiscovered);
+				linkPacer.setPhy(txPhy);
 				if (request instanceof final PhyRequest pr) {
 					pr.notifyPhyChanged(gatt.getDevice(), txPhy, rxPhy);
 					pr.notifySuccess(gatt.getDevice());
@@ -2993,6 +3212,7 @@ abstract class BleManagerHandler extends RequestHandler {
 				log(Log.INFO, () ->
 						"PHY read (TX: " + ParserUtils.phyToString(txPhy) +
 						", RX: " + ParserUtils.phyToString(rxPhy) + ")");
+				linkPacer.setPhy(txPhy);
 				if (request instanceof final PhyRequest pr) {
 					pr.notifyPhyChanged(gatt.getDevice(), txPhy, rxPhy);
 					request.notifySuccess(gatt.getDevice());
@@ -3015,6 +3235,8 @@ abstract class BleManagerHandler extends RequestHandler {
 									 final int status) {
 			if (status == BluetoothGatt.GATT_SUCCESS) {
 				log(Log.INFO, () -> "Remote RSSI received: " + rssi + " dBm");
+				if (admissionController != null)
+					admissionController.reportRssi(gatt.getDevice(), rssi);
 				if (request instanceof final ReadRssiRequest rrr) {
 					rrr.notifyRssiRead(gatt.getDevice(), rssi);
 					rrr.notifySuccess(gatt.getDevice());
@@ -3497,9 +3719,41 @@ abstract class BleManagerHandler extends RequestHandler {
 	/**
 	 * Executes the next request. If the last element from the initialization queue has
 	 * been executed the {@link #onDeviceReady()} callback is called.
+	 * <p>
+	 * Requests which finish synchronously (cancelled, invalid, failed to start, etc.) call
+	 * this method again. Such nested calls are not executed recursively. Instead, they are
+	 * recorded and handled in a loop once the current step returns, so the stack depth stays
+	 * constant regardless of the number of requests skipped.
+	 *
+	 * @param force true to proceed even if an operation is in progress.
 	 */
-	@SuppressLint("MissingPermission")
 	private synchronized void nextRequest(final boolean force) {
+		if (nextRequestInProgress) {
+			nextRequestPending = true;
+			nextRequestForced |= force;
+			return;
+		}
+		nextRequestInProgress = true;
+		try {
+			boolean f = force;
+			do {
+				nextRequestPending = false;
+				nextRequestForced = false;
+				executeNextRequest(f);
+				f = nextRequestForced;
+			} while (nextRequestPending);
+		} finally {
+			nextRequestInProgress = false;
+		}
+	}
+
+	/**
+	 * A single step of {@link #nextRequest(boolean)}.
+	 *
+	 * @param force true to proceed even if an operation is in progress.
+	 */
+	@SuppressLint("MissingPermission")
+	private void executeNextRequest(final boolean force) {
 		if (force && operationInProgress) {
 			operationInProgress = awaitingRequest != null;
 		}
@@ -3558,9 +3812,8 @@ abstract class BleManagerHandler extends RequestHandler {
 				}
 			}
 			// If so, we can continue with the task queue
-			try {
-				request = taskQueue.remove();
-			} catch (final Exception e) {
+			request = taskQueue.poll();
+			if (request == null) {
 				// No more tasks to perform
 				operationInProgress = false;
 				this.request = null;
@@ -3575,6 +3828,14 @@ abstract class BleManagerHandler extends RequestHandler {
 			return;
 		}
 
+		// If the request has waited in the queue for too long, fail it without executing.
+		if (request.isExpired()) {
+			log(Log.WARN, () -> "Request expired in the queue");
+			failUnexecuted(request, FailCallback.REASON_EXPIRED);
+			nextRequest(false);
+			return;
+		}
+
 		boolean result = false;
 		operationInProgress = true;
 		this.request = request;
@@ -3652,7 +3913,7 @@ abstract class BleManagerHandler extends RequestHandler {
 				final ConnectRequest cr = (ConnectRequest) request;
 				connectRequest = cr;
 				this.request = null;
-				result = internalConnect(cr.getDevice(), cr);
+				result = connectWhenAdmitted(cr.getDevice(), cr);
 				break;
 			}
 			case DISCONNECT: {
@@ -3687,7 +3948,19 @@ abstract class BleManagerHandler extends RequestHandler {
 			case WRITE: {
 				//noinspection DataFlowIssue
 				final WriteRequest wr = (WriteRequest) request;
-				result = internalWriteCharacteristic(wr.characteristic, wr.getData(mtu), wr.getWriteType());
+				if (wr.isAdaptive())
+					wr.setPacer(linkPacer);
+				final byte[] data = wr.getData(mtu);
+				result = wr.hasSourceFailed() ||
+						internalWriteCharacteristic(wr.characteristic, data, wr.getWriteType());
+				// Reading from a data source may fail before anything was written.
+				if (wr.hasSourceFailed()) {
+					log(Log.ERROR, () -> "Reading data to be written failed");
+					if (bluetoothDevice != null)
+						wr.notifyFail(bluetoothDevice, FailCallback.REASON_REQUEST_FAILED);
+					nextRequest(true);
+					return;
+				}
 				break;
 			}
 			case READ_DESCRIPTOR: {
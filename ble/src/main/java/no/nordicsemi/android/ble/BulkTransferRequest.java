@@ -0,0 +1,240 @@
+package no.nordicsemi.android.ble;
+
+import android.bluetooth.BluetoothDevice;
+import android.os.Handler;
+import android.util.Log;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import no.nordicsemi.android.ble.annotation.ConnectionPriority;
+import no.nordicsemi.android.ble.annotation.RequestPriority;
+import no.nordicsemi.android.ble.callback.AfterCallback;
+import no.nordicsemi.android.ble.callback.BeforeCallback;
+import no.nordicsemi.android.ble.callback.FailCallback;
+import no.nordicsemi.android.ble.callback.InvalidRequestCallback;
+import no.nordicsemi.android.ble.callback.SuccessCallback;
+import no.nordicsemi.android.ble.callback.ThroughputCallback;
+
+/**
+ * This queue sends its operations over the fastest link available.
+ * Before the first operation is executed, the highest MTU, LE 2M PHY and high connection
+ * priority are requested. When all operations are complete, or the queue has failed or was
+ * cancelled, the previous PHY and the connection priority set with
+ * {@link #restoreConnectionPriority(int)} are requested again.
+ * <p>
+ * Negotiation is done on a best-effort basis: if the device or the phone does not support
+ * any of the parameters, the transfer continues using the current ones.
+ * The MTU cannot be lowered once it was increased, so it is not restored.
+ * <p>
+ * Use {@link #with(ThroughputCallback)} to get the number of bytes sent and
+ * the achieved throughput.
+ */
+@SuppressWarnings("unused")
+public final class BulkTransferRequest extends RequestQueue {
+	private static final int SETUP_SIZE = 4;
+
+	private ThroughputCallback throughputCallback;
+	@ConnectionPriority
+	private int restorePriority = ConnectionPriorityRequest.CONNECTION_PRIORITY_BALANCED;
+	private Deque<Request> setup;
+	private Deque<Request> restore;
+	private WriteRequest current;
+	private volatile int previousTxPhy, previousRxPhy;
+	private long bytesSent;
+	private long startTime, endTime;
+
+	@NonNull
+	@Override
+	BulkTransferRequest setRequestHandler(@NonNull final RequestHandler requestHandler) {
+		super.setRequestHandler(requestHandler);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public BulkTransferRequest setHandler(@Nullable final Handler handler) {
+		super.setHandler(handler);
+		return this;
+	}
+
+	@Override
+	@NonNull
+	public BulkTransferRequest done(@NonNull final SuccessCallback callback) {
+		super.done(callback);
+		return this;
+	}
+
+	@Override
+	@NonNull
+	public BulkTransferRequest fail(@NonNull final FailCallback callback) {
+		super.fail(callback);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public BulkTransferRequest invalid(@NonNull final InvalidRequestCallback callback) {
+		super.invalid(callback);
+		return this;
+	}
+
+	@Override
+	@NonNull
+	public BulkTransferRequest before(@NonNull final BeforeCallback callback) {
+		super.before(callback);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public BulkTransferRequest then(@NonNull final AfterCallback callback) {
+		super.then(callback);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public BulkTransferRequest priority(@RequestPriority final int priority) {
+		super.priority(priority);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public BulkTransferRequest expireAfter(@IntRange(from = 0) final long ttl) {
+		super.expireAfter(ttl);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public BulkTransferRequest timeout(@IntRange(from = 0) final long timeout) {
+		super.timeout(timeout);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public BulkTransferRequest add(@NonNull final Operation operation) {
+		super.add(operation);
+		return this;
+	}
+
+	/**
+	 * Sets the callback that will be called when the transfer has completed with success.
+	 *
+	 * @param callback the callback.
+	 * @return The request.
+	 */
+	@NonNull
+	public BulkTransferRequest with(@NonNull final ThroughputCallback callback) {
+		this.throughputCallback = callback;
+		return this;
+	}
+
+	/**
+	 * Sets the connection priority requested after the transfer. Android does not allow to
+	 * read the current connection priority, therefore by default
+	 * {@link ConnectionPriorityRequest#CONNECTION_PRIORITY_BALANCED} is requested.
+	 *
+	 * @param priority the connection priority to be restored.
+	 * @return The request.
+	 */
+	@NonNull
+	public BulkTransferRequest restoreConnectionPriority(@ConnectionPriority final int priority) {
+		if (enqueued)
+			throw new IllegalStateException("Request already enqueued");
+		this.restorePriority = priority;
+		return this;
+	}
+
+	@Override
+	public int size() {
+		int size = super.size();
+
+		// Add negotiation requests
+		size += setup == null ? SETUP_SIZE : setup.size();
+
+		// Add PHY and connection priority restore requests
+		size += restore == null ? 2 : restore.size();
+		return size;
+	}
+
+	@Override
+	Request getNext() {
+		if (setup == null) {
+			setup = new ArrayDeque<>(SETUP_SIZE);
+			setup.add(newReadPhyRequest().with((device, txPhy, rxPhy) -> {
+				previousTxPhy = txPhy;
+				previousRxPhy = rxPhy;
+			}));
+			setup.add(newMtuRequest(517));
+			setup.add(newSetPreferredPhyRequest(PhyRequest.PHY_LE_2M_MASK, PhyRequest.PHY_LE_2M_MASK,
+					PhyRequest.PHY_OPTION_NO_PREFERRED));
+			setup.add(newConnectionPriorityRequest(ConnectionPriorityRequest.CONNECTION_PRIORITY_HIGH));
+		}
+		if (!setup.isEmpty())
+			return setup.remove();
+
+		if (restore == null) {
+			countBytesSent();
+			if (!super.isEmpty()) {
+				if (startTime == 0)
+					startTime = clock.elapsedRealtime();
+				final Request request = super.getNext();
+				current = request instanceof final WriteRequest wr ? wr : null;
+				return request;
+			}
+			endTime = clock.elapsedRealtime();
+
+			restore = new ArrayDeque<>(2);
+			if (previousTxPhy > 0 && previousRxPhy > 0) {
+				// PHY values start from 1, masks from 1 << 0.
+				restore.add(newSetPreferredPhyRequest(1 << (previousTxPhy - 1), 1 << (previousRxPhy - 1),
+						PhyRequest.PHY_OPTION_NO_PREFERRED));
+			}
+			restore.add(newConnectionPriorityRequest(restorePriority));
+		}
+		return restore.poll();
+	}
+
+	@Override
+	boolean hasMore() {
+		// If no operations were added, no parameters will be negotiated.
+		if (setup == null)
+			return super.hasMore();
+		return restore == null || !restore.isEmpty();
+	}
+
+	@Override
+	boolean notifySuccess(@NonNull final BluetoothDevice device) {
+		if (!super.notifySuccess(device))
+			return false;
+
+		final long bytes = bytesSent;
+		final long duration = endTime - startTime;
+		final long bytesPerSecond = duration > 0 ? bytes * 1000 / duration : 0;
+		handler.post(() -> {
+			if (throughputCallback != null) {
+				try {
+					throughputCallback.onTransferCompleted(device, bytes, bytesPerSecond);
+				} catch (final Throwable t) {
+					Log.e(TAG, "Exception in Throughput callback", t);
+				}
+			}
+		});
+		return true;
+	}
+
+	private void countBytesSent() {
+		if (current != null) {
+			bytesSent += current.getBytesSent();
+			current = null;
+		}
+	}
+}
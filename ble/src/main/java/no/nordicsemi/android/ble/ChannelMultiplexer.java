@@ -0,0 +1,374 @@
+package no.nordicsemi.android.ble;
+
+import android.bluetooth.BluetoothDevice;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import no.nordicsemi.android.ble.callback.DataReceivedCallback;
+import no.nordicsemi.android.ble.callback.FailCallback;
+import no.nordicsemi.android.ble.callback.SuccessCallback;
+import no.nordicsemi.android.ble.data.Data;
+import no.nordicsemi.android.ble.data.DataMerger;
+import no.nordicsemi.android.ble.data.DataSplitter;
+import no.nordicsemi.android.ble.data.DataStream;
+import no.nordicsemi.android.ble.data.DefaultMtuSplitter;
+
+/**
+ * Multiplexes messages of several logical channels over a single pair of characteristics.
+ * <p>
+ * Each packet starts with a 1-byte header: the channel ID in bits 0-6 and a flag in bit 7
+ * set in the last packet of a message. Messages are split using the channel's
+ * {@link DataSplitter} and packets of different channels are interleaved using weighted fair
+ * queueing: the next packet is taken from the channel which has sent the fewest bytes
+ * relative to its weight. Only a few packets are handed to the request queue at a time,
+ * so a message sent on a latency-sensitive channel does not wait for a large message
+ * of another channel to be sent.
+ * <p>
+ * Received packets are reassembled per channel, using the end-of-message flag, or the
+ * channel's {@link DataMerger}, if set.
+ *
+ * @see BleManager#openMultiplexer(android.bluetooth.BluetoothGattCharacteristic, android.bluetooth.BluetoothGattCharacteristic, int)
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class ChannelMultiplexer {
+	/** The maximum channel ID. */
+	public static final int MAX_CHANNEL_ID = 0x7F;
+	/** The length of the packet header. */
+	static final int HEADER_LENGTH = 1;
+	static final int FLAG_END = 0x80;
+	/** The number of packets handed to the request queue at a time. */
+	static final int PACKETS_IN_FLIGHT = 2;
+	/** Scale of the virtual time, so that it is precise also for short packets and high weights. */
+	private static final int COST_SCALE = 1024;
+
+	/**
+	 * The channel used to send packets.
+	 */
+	interface Link {
+		/**
+		 * Sends the packet.
+		 *
+		 * @param packet   the packet, including the header.
+		 * @param sent     the callback called when the packet was sent.
+		 * @param failed   the callback called when sending the packet failed.
+		 */
+		void send(@NonNull final byte[] packet,
+				  @NonNull final SuccessCallback sent, @NonNull final FailCallback failed);
+
+		/**
+		 * Returns the maximum length of a packet, including the header.
+		 */
+		int getMaxPacketLength();
+	}
+
+	private static final class Message {
+		@NonNull
+		private final byte[] data;
+		@Nullable
+		private final SuccessCallback callback;
+		private int index;
+		private int maxLength;
+		/** Set when sending a packet of the message has failed. */
+		private boolean failed;
+		/** The next chunk, split in advance to know whether the current one is the last. */
+		@Nullable
+		private byte[] next;
+
+		private Message(@NonNull final byte[] data, @Nullable final SuccessCallback callback) {
+			this.data = data;
+			this.callback = callback;
+		}
+	}
+
+	/**
+	 * A logical channel.
+	 */
+	public final class Channel {
+		private final int id;
+		private int weight = 1;
+		@NonNull
+		private DataSplitter splitter = new DefaultMtuSplitter();
+		@Nullable
+		private DataMerger merger;
+		@Nullable
+		private DataReceivedCallback callback;
+		private final Deque<Message> messages = new ArrayDeque<>();
+		/**
+		 * Bytes sent divided by the weight, in the virtual time of the multiplexer.
+		 * This is also the start time of the next packet of the channel.
+		 */
+		private long finishTime;
+		// Reassembly
+		@Nullable
+		private DataStream buffer;
+		private int packetIndex;
+
+		private Channel(final int id) {
+			this.id = id;
+		}
+
+		/**
+		 * Sets the weight of the channel. When several channels have data to send, each of them
+		 * gets the share of the link proportional to its weight.
+		 *
+		 * @param weight the weight, by default 1.
+		 * @return The channel.
+		 */
+		@NonNull
+		public Channel weight(@IntRange(from = 1) final int weight) {
+			if (weight < 1)
+				throw new IllegalArgumentException("Weight must be positive");
+			synchronized (ChannelMultiplexer.this) {
+				this.weight = weight;
+			}
+			return this;
+		}
+
+		/**
+		 * Sets the splitter used to split messages sent on this channel.
+		 * By default, the {@link DefaultMtuSplitter} is used.
+		 *
+		 * @param splitter the splitter.
+		 * @return The channel.
+		 */
+		@NonNull
+		public Channel split(@NonNull final DataSplitter splitter) {
+			synchronized (ChannelMultiplexer.this) {
+				this.splitter = splitter;
+			}
+			return this;
+		}
+
+		/**
+		 * Sets the merger used to reassemble messages received on this channel.
+		 * By default, a message is complete when a packet with the end-of-message flag
+		 * is received.
+		 *
+		 * @param merger the merger.
+		 * @return The channel.
+		 */
+		@NonNull
+		public Channel merge(@NonNull final DataMerger merger) {
+			synchronized (ChannelMultiplexer.this) {
+				this.merger = merger;
+			}
+			return this;
+		}
+
+		/**
+		 * Sets the callback called with every complete message received on this channel.
+		 *
+		 * @param callback the callback.
+		 * @return The channel.
+		 */
+		@NonNull
+		public Channel with(@NonNull final DataReceivedCallback callback) {
+			synchronized (ChannelMultiplexer.this) {
+				this.callback = callback;
+			}
+			return this;
+		}
+
+		/**
+		 * Sends the message on this channel.
+		 *
+		 * @param message the message.
+		 */
+		public void send(@NonNull final byte[] message) {
+			send(message, null);
+		}
+
+		/**
+		 * Sends the message on this channel.
+		 *
+		 * @param message  the message.
+		 * @param callback the callback called when the last packet of the message was sent.
+		 *                 It is not called if sending any packet has failed.
+		 */
+		public void send(@NonNull final byte[] message, @Nullable final SuccessCallback callback) {
+			synchronized (ChannelMultiplexer.this) {
+				// An idle channel does not save its share for later.
+				if (messages.isEmpty())
+					finishTime = Math.max(finishTime, virtualTime);
+				messages.add(new Message(message, callback));
+				flush();
+			}
+		}
+
+		/**
+		 * Returns the number of messages waiting to be sent, including the one being sent.
+		 */
+		public int getPendingMessages() {
+			synchronized (ChannelMultiplexer.this) {
+				return messages.size();
+			}
+		}
+	}
+
+	@NonNull
+	private final Link link;
+	@NonNull
+	private final CallbackHandler handler;
+	private final Channel[] channels = new Channel[MAX_CHANNEL_ID + 1];
+	private int packetsInFlight;
+	/** The start time of the last packet sent. */
+	private long virtualTime;
+
+	ChannelMultiplexer(@NonNull final Link link, @NonNull final CallbackHandler handler) {
+		this.link = link;
+		this.handler = handler;
+	}
+
+	/**
+	 * Returns the channel with the given ID, creating it if needed. Both sides should
+	 * use the same IDs for the same logical channels.
+	 *
+	 * @param id the channel ID, from 0 to {@link #MAX_CHANNEL_ID}.
+	 * @return The channel.
+	 */
+	@NonNull
+	public synchronized Channel channel(@IntRange(from = 0, to = MAX_CHANNEL_ID) final int id) {
+		if (id < 0 || id > MAX_CHANNEL_ID)
+			throw new IllegalArgumentException("Channel ID must be between 0 and " + MAX_CHANNEL_ID);
+		if (channels[id] == null)
+			channels[id] = new Channel(id);
+		return channels[id];
+	}
+
+	/**
+	 * Discards messages waiting to be sent and partially received messages.
+	 */
+	public synchronized void clear() {
+		for (final Channel channel : channels) {
+			if (channel != null) {
+				channel.messages.clear();
+				channel.buffer = null;
+				channel.packetIndex = 0;
+				channel.finishTime = 0;
+			}
+		}
+		virtualTime = 0;
+	}
+
+	/**
+	 * Method called when a packet was received from the remote device.
+	 *
+	 * @param device the device.
+	 * @param data   the packet, starting with the header.
+	 */
+	void onPacketReceived(@NonNull final BluetoothDevice device, @NonNull final Data data) {
+		final byte[] packet = data.getValue();
+		if (packet == null || packet.length < HEADER_LENGTH)
+			return;
+		final DataReceivedCallback callback;
+		final Data message;
+		synchronized (this) {
+			final Channel channel = channels[packet[0] & MAX_CHANNEL_ID];
+			if (channel == null)
+				return;
+			if (channel.buffer == null)
+				channel.buffer = new DataStream();
+			final boolean end = (packet[0] & FLAG_END) != 0;
+			final boolean complete;
+			if (channel.merger != null) {
+				final byte[] payload = new byte[packet.length - HEADER_LENGTH];
+				System.arraycopy(packet, HEADER_LENGTH, payload, 0, payload.length);
+				complete = channel.merger.merge(channel.buffer, payload, channel.packetIndex++);
+			} else {
+				channel.buffer.write(packet, HEADER_LENGTH, packet.length - HEADER_LENGTH);
+				complete = end;
+			}
+			if (!complete)
+				return;
+			message = channel.buffer.toData();
+			channel.buffer = null;
+			channel.packetIndex = 0;
+			callback = channel.callback;
+		}
+		if (callback != null)
+			handler.post(() -> callback.onDataReceived(device, message));
+	}
+
+	private void flush() {
+		while (packetsInFlight < PACKETS_IN_FLIGHT) {
+			final Channel channel = nextChannel();
+			if (channel == null)
+				return;
+			final Message message = channel.messages.peek();
+			final byte[] packet = nextPacket(channel, message);
+			final boolean last = (packet[0] & FLAG_END) != 0;
+			if (last)
+				channel.messages.poll();
+
+			virtualTime = channel.finishTime;
+			channel.finishTime += (long) packet.length * COST_SCALE / channel.weight;
+			packetsInFlight++;
+			link.send(packet,
+					device -> onPacketSent(device, message, last),
+					(device, status) -> onPacketFailed(channel, message));
+		}
+	}
+
+	/**
+	 * Returns the channel with data to send and the lowest start time of the next packet.
+	 */
+	@Nullable
+	private Channel nextChannel() {
+		Channel next = null;
+		for (final Channel channel : channels) {
+			if (channel != null && !channel.messages.isEmpty()
+					&& (next == null || channel.finishTime < next.finishTime))
+				next = channel;
+		}
+		return next;
+	}
+
+	@NonNull
+	private byte[] nextPacket(@NonNull final Channel channel, @NonNull final Message message) {
+		final byte[] chunk;
+		if (message.index == 0) {
+			// The maximum length is kept for the whole message, as splitters may rely on it.
+			message.maxLength = link.getMaxPacketLength() - HEADER_LENGTH;
+			chunk = channel.splitter.chunk(message.data, 0, message.maxLength);
+		} else {
+			chunk = message.next;
+		}
+		message.index++;
+		message.next = chunk != null ?
+				channel.splitter.chunk(message.data, message.index, message.maxLength) : null;
+
+		final int length = chunk != null ? chunk.length : 0;
+		final byte[] packet = new byte[HEADER_LENGTH + length];
+		packet[0] = (byte) (channel.id | (message.next == null ? FLAG_END : 0));
+		if (chunk != null)
+			System.arraycopy(chunk, 0, packet, HEADER_LENGTH, length);
+		return packet;
+	}
+
+	private void onPacketSent(@NonNull final BluetoothDevice device,
+							  @NonNull final Message message, final boolean last) {
+		final SuccessCallback callback;
+		synchronized (this) {
+			packetsInFlight--;
+			callback = last && !message.failed ? message.callback : null;
+			flush();
+		}
+		if (callback != null)
+			handler.post(() -> callback.onRequestCompleted(device));
+	}
+
+	private synchronized void onPacketFailed(@NonNull final Channel channel,
+											 @NonNull final Message message) {
+		packetsInFlight--;
+		// The remaining packets of the message would be useless, so they are dropped.
+		// The callback is not called, even if the last packet has already been handed over.
+		message.failed = true;
+		channel.messages.remove(message);
+		flush();
+	}
+}
@@ -7,6 +7,7 @@ import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import no.nordicsemi.android.ble.annotation.RequestPriority;
 import no.nordicsemi.android.ble.callback.AfterCallback;
 import no.nordicsemi.android.ble.callback.BeforeCallback;
 import no.nordicsemi.android.ble.callback.FailCallback;
@@ -93,6 +94,20 @@ public final class ConditionalWaitRequest<T> extends AwaitingRequest<T> implemen
 		return this;
 	}
 
+	@NonNull
+	@Override
+	public ConditionalWaitRequest<T> priority(@RequestPriority final int priority) {
+		super.priority(priority);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public ConditionalWaitRequest<T> expireAfter(@IntRange(from = 0) final long ttl) {
+		super.expireAfter(ttl);
+		return this;
+	}
+
 	/**
 	 * Negates the expected value of the predicate.
 	 *
@@ -34,6 +34,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import no.nordicsemi.android.ble.annotation.PhyMask;
+import no.nordicsemi.android.ble.annotation.RequestPriority;
 import no.nordicsemi.android.ble.callback.AfterCallback;
 import no.nordicsemi.android.ble.callback.BeforeCallback;
 import no.nordicsemi.android.ble.callback.FailCallback;
@@ -58,7 +59,10 @@ public class ConnectRequest extends TimeoutableRequest {
 	@IntRange(from = 0)
 	private int attempt = 0, retries = 0;
 	@IntRange(from = 0)
-	private int delay = 0;
+	private int delay = 0, maxDelay = 0;
+	private int failedAttempts = 0;
+	@Nullable
+	private ConnectionAdmissionController admissionController;
 	private boolean autoConnect = false;
 	private boolean autoConnectCreateDirectConnectionFirst = true;
 
@@ -138,6 +142,20 @@ public class ConnectRequest extends TimeoutableRequest {
 		return this;
 	}
 
+	@NonNull
+	@Override
+	public ConnectRequest priority(@RequestPriority final int priority) {
+		super.priority(priority);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public ConnectRequest expireAfter(@IntRange(from = 0) final long ttl) {
+		super.expireAfter(ttl);
+		return this;
+	}
+
 	/**
 	 * Sets an optional retry count. The BleManager will do that many attempts to connect to the
 	 * device in case of an error. The library will NOT retry if the device is not reachable,
@@ -151,6 +169,7 @@ public class ConnectRequest extends TimeoutableRequest {
 	public ConnectRequest retry(@IntRange(from = 0) final int count) {
 		this.retries = count;
 		this.delay = 0;
+		this.maxDelay = 0;
 		return this;
 	}
 
@@ -171,6 +190,51 @@ public class ConnectRequest extends TimeoutableRequest {
 								@IntRange(from = 0) final int delay) {
 		this.retries = count;
 		this.delay = delay;
+		this.maxDelay = 0;
+		return this;
+	}
+
+	/**
+	 * Sets an optional retry count with exponential backoff. The delay before the first retry is
+	 * about the initial delay, and it doubles with each following attempt, up to the maximum delay.
+	 * Each delay is randomized to be between 50% and 100% of the computed value, so that devices
+	 * which failed at the same time don't retry at the same time.
+	 * <p>
+	 * The library will NOT retry if the device is not reachable, that is when the 30 sec.
+	 * timeout occurs. In that case the app should scan before connecting, to make sure the
+	 * target is in range.
+	 *
+	 * @param count        how many times should the BleManager retry to connect.
+	 * @param initialDelay the delay before the first retry, in milliseconds.
+	 * @param maxDelay     the maximum delay between connection attempts, in milliseconds.
+	 * @return The request.
+	 * @see #retry(int, int)
+	 */
+	public ConnectRequest retryWithBackoff(@IntRange(from = 0) final int count,
+										   @IntRange(from = 1) final int initialDelay,
+										   @IntRange(from = 1) final int maxDelay) {
+		if (initialDelay < 1 || maxDelay < initialDelay)
+			throw new IllegalArgumentException("Invalid delays: " + initialDelay + ", " + maxDelay);
+		this.retries = count;
+		this.delay = initialDelay;
+		this.maxDelay = maxDelay;
+		return this;
+	}
+
+	/**
+	 * Sets the admission controller which limits the number of connection attempts pending
+	 * at the same time in the process. The connection will be started when the controller
+	 * admits it. Time spent waiting for admission counts towards the {@link #timeout(long)}.
+	 * <p>
+	 * The controller is only used for direct connections. Connections using
+	 * {@link #useAutoConnect(boolean) autoConnect} are started immediately.
+	 *
+	 * @param controller the controller shared by all connect requests in the process,
+	 *                   or null to connect without limits (default).
+	 * @return The request.
+	 */
+	public ConnectRequest useAdmissionController(@Nullable final ConnectionAdmissionController controller) {
+		this.admissionController = controller;
 		return this;
 	}
 
@@ -318,6 +382,7 @@ public class ConnectRequest extends TimeoutableRequest {
 	boolean canRetry() {
 		if (retries > 0) {
 			retries -= 1;
+			failedAttempts += 1;
 			return true;
 		}
 		return false;
@@ -329,7 +394,17 @@ public class ConnectRequest extends TimeoutableRequest {
 
 	@IntRange(from = 0)
 	int getRetryDelay() {
-		return delay;
+		if (maxDelay == 0 || failedAttempts == 0)
+			return delay;
+		// Exponential backoff with jitter.
+		final int shift = Math.min(failedAttempts - 1, 30);
+		final long backoff = Math.min(maxDelay, (long) delay << shift);
+		return (int) (backoff / 2 + (long) (Math.random() * (backoff / 2 + 1)));
+	}
+
+	@Nullable
+	ConnectionAdmissionController getAdmissionController() {
+		return admissionController;
 	}
 
 	boolean shouldAutoConnect() {
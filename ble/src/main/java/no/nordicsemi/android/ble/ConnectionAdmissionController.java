@@ -0,0 +1,229 @@
+package no.nordicsemi.android.ble;
+
+import android.bluetooth.BluetoothDevice;
+import android.os.SystemClock;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The admission controller limits the number of connection attempts pending at the same time.
+ * <p>
+ * Android can handle only a few concurrent direct connection attempts. When many devices are
+ * connected at once, e.g. after Bluetooth was restarted, the attempts often fail with status 133.
+ * A single controller instance should be shared by all {@link ConnectRequest}s in the process
+ * using {@link ConnectRequest#useAdmissionController(ConnectionAdmissionController)}.
+ * <p>
+ * When a slot becomes free, waiting devices with a recent RSSI sample are admitted first,
+ * starting from the strongest one. Other devices are admitted in the order they requested
+ * connection. RSSI values read using {@link BleManager#readRssi()} are reported automatically;
+ * values obtained from scan results may be reported using
+ * {@link #reportRssi(BluetoothDevice, int)}.
+ * <p>
+ * Background connections, using {@link ConnectRequest#useAutoConnect(boolean) autoConnect},
+ * are not limited.
+ */
+@SuppressWarnings("unused")
+public final class ConnectionAdmissionController {
+	/**
+	 * Time after which an RSSI sample is no longer considered recent, in milliseconds.
+	 */
+	public static final long RSSI_VALIDITY = 30_000;
+
+	interface Clock {
+		long elapsedRealtime();
+	}
+
+	/**
+	 * A place in the controller's queue, obtained by a manager before connecting.
+	 */
+	static final class Ticket {
+		@NonNull
+		private final ConnectionAdmissionController controller;
+		@NonNull
+		private final String address;
+		@NonNull
+		private final Runnable onAdmitted;
+		private final long sequence;
+		private boolean admitted;
+		private boolean released;
+
+		private Ticket(@NonNull final ConnectionAdmissionController controller,
+					   @NonNull final String address,
+					   @NonNull final Runnable onAdmitted,
+					   final long sequence) {
+			this.controller = controller;
+			this.address = address;
+			this.onAdmitted = onAdmitted;
+			this.sequence = sequence;
+		}
+
+		/**
+		 * Releases the slot taken by the connection attempt, or removes the ticket from the
+		 * queue if it hasn't been admitted yet. This method may be called multiple times.
+		 */
+		void release() {
+			controller.release(this);
+		}
+
+		boolean isAdmitted() {
+			synchronized (controller) {
+				return admitted && !released;
+			}
+		}
+	}
+
+	private static final class RssiSample {
+		private final int rssi;
+		private final long timestamp;
+
+		private RssiSample(final int rssi, final long timestamp) {
+			this.rssi = rssi;
+			this.timestamp = timestamp;
+		}
+	}
+
+	@NonNull
+	private final Clock clock;
+	private final int maxPendingConnections;
+	private final List<Ticket> waiting = new ArrayList<>();
+	private final Map<String, RssiSample> samples = new HashMap<>();
+	private int pending;
+	private long sequence;
+
+	/**
+	 * Creates the admission controller.
+	 *
+	 * @param maxPendingConnections the maximum number of direct connection attempts pending
+	 *                              at the same time.
+	 */
+	public ConnectionAdmissionController(@IntRange(from = 1) final int maxPendingConnections) {
+		this(maxPendingConnections, SystemClock::elapsedRealtime);
+	}
+
+	ConnectionAdmissionController(@IntRange(from = 1) final int maxPendingConnections,
+								  @NonNull final Clock clock) {
+		if (maxPendingConnections < 1)
+			throw new IllegalArgumentException("At least 1 pending connection must be allowed");
+		this.maxPendingConnections = maxPendingConnections;
+		this.clock = clock;
+	}
+
+	/**
+	 * Reports the RSSI of a device, e.g. from a scan result. Devices with a recent RSSI are
+	 * admitted before devices without one, and stronger ones before weaker ones.
+	 *
+	 * @param device the device.
+	 * @param rssi   the received signal strength, in dBm.
+	 */
+	public void reportRssi(@NonNull final BluetoothDevice device, final int rssi) {
+		reportRssi(device.getAddress(), rssi);
+	}
+
+	synchronized void reportRssi(@NonNull final String address, final int rssi) {
+		samples.put(address, new RssiSample(rssi, clock.elapsedRealtime()));
+	}
+
+	/**
+	 * Returns the number of connection attempts admitted and not yet finished.
+	 */
+	public synchronized int getPendingConnectionCount() {
+		return pending;
+	}
+
+	/**
+	 * Returns the number of connection attempts waiting for admission.
+	 */
+	public synchronized int getWaitingConnectionCount() {
+		return waiting.size();
+	}
+
+	/**
+	 * Requests admission for a connection attempt to the given device.
+	 * The callback is invoked when the attempt is admitted, either immediately, on the calling
+	 * thread, or when another attempt releases its slot, on the thread releasing it.
+	 *
+	 * @param device     the device to connect to.
+	 * @param onAdmitted the callback to be invoked when the connection may be started.
+	 * @return The ticket, which must be released when the attempt is finished or cancelled.
+	 */
+	@NonNull
+	Ticket request(@NonNull final BluetoothDevice device, @NonNull final Runnable onAdmitted) {
+		return request(device.getAddress(), onAdmitted);
+	}
+
+	@NonNull
+	Ticket request(@NonNull final String address, @NonNull final Runnable onAdmitted) {
+		final Ticket ticket;
+		synchronized (this) {
+			ticket = new Ticket(this, address, onAdmitted, sequence++);
+			if (pending < maxPendingConnections) {
+				pending++;
+				ticket.admitted = true;
+			} else {
+				waiting.add(ticket);
+			}
+		}
+		if (ticket.admitted)
+			ticket.onAdmitted.run();
+		return ticket;
+	}
+
+	private void release(@NonNull final Ticket ticket) {
+		final Ticket next;
+		synchronized (this) {
+			if (ticket.released)
+				return;
+			ticket.released = true;
+			if (!ticket.admitted) {
+				waiting.remove(ticket);
+				return;
+			}
+			pending--;
+			next = poll();
+			if (next != null) {
+				pending++;
+				next.admitted = true;
+			}
+		}
+		if (next != null)
+			next.onAdmitted.run();
+	}
+
+	/**
+	 * Removes and returns the waiting ticket which should be admitted next.
+	 */
+	private Ticket poll() {
+		final long now = clock.elapsedRealtime();
+		Ticket best = null;
+		RssiSample bestSample = null;
+		for (final Ticket ticket : waiting) {
+			RssiSample sample = samples.get(ticket.address);
+			if (sample != null && now - sample.timestamp > RSSI_VALIDITY)
+				sample = null;
+			if (best == null || isBetter(ticket, sample, best, bestSample)) {
+				best = ticket;
+				bestSample = sample;
+			}
+		}
+		if (best != null)
+			waiting.remove(best);
+		return best;
+	}
+
+	private static boolean isBetter(@NonNull final Ticket ticket, final RssiSample sample,
+									@NonNull final Ticket other, final RssiSample otherSample) {
+		if (sample != null && otherSample != null) {
+			if (sample.rssi != otherSample.rssi)
+				return sample.rssi > otherSample.rssi;
+		} else if (sample != null || otherSample != null) {
+			return sample != null;
+		}
+		return ticket.sequence < other.sequence;
+	}
+}
@@ -32,6 +32,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import no.nordicsemi.android.ble.annotation.ConnectionPriority;
+import no.nordicsemi.android.ble.annotation.RequestPriority;
 import no.nordicsemi.android.ble.callback.AfterCallback;
 import no.nordicsemi.android.ble.callback.BeforeCallback;
 import no.nordicsemi.android.ble.callback.ConnectionParametersUpdatedCallback;
@@ -140,6 +141,20 @@ public final class ConnectionPriorityRequest extends SimpleValueRequest<Connecti
 		return this;
 	}
 
+	@NonNull
+	@Override
+	public ConnectionPriorityRequest priority(@RequestPriority final int priority) {
+		super.priority(priority);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public ConnectionPriorityRequest expireAfter(@IntRange(from = 0) final long ttl) {
+		super.expireAfter(ttl);
+		return this;
+	}
+
 	/**
 	 * Sets the value callback. When the request is invoked synchronously, this callback will
 	 * be ignored and the received value will be returned by the <code>await(...)</code> method;
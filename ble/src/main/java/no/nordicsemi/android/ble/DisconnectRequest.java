@@ -27,6 +27,7 @@ import android.os.Handler;
 import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import no.nordicsemi.android.ble.annotation.RequestPriority;
 import no.nordicsemi.android.ble.callback.AfterCallback;
 import no.nordicsemi.android.ble.callback.BeforeCallback;
 import no.nordicsemi.android.ble.callback.FailCallback;
@@ -94,4 +95,18 @@ public class DisconnectRequest extends TimeoutableRequest {
 		super.then(callback);
 		return this;
 	}
+
+	@NonNull
+	@Override
+	public DisconnectRequest priority(@RequestPriority final int priority) {
+		super.priority(priority);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public DisconnectRequest expireAfter(@IntRange(from = 0) final long ttl) {
+		super.expireAfter(ttl);
+		return this;
+	}
 }
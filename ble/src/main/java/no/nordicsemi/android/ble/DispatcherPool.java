@@ -0,0 +1,217 @@
+package no.nordicsemi.android.ble;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A bounded pool of dispatcher threads which may be shared by many {@link BleManager} instances.
+ * <p>
+ * Each manager should be given its own {@link Handler} obtained using {@link #obtain()}:
+ * <pre>
+ * final DispatcherPool pool = new DispatcherPool(2);
+ * final MyBleManager manager = new MyBleManager(context, pool.obtain());
+ * </pre>
+ * Handlers are assigned to the least loaded thread, and the threads are started only when
+ * needed, so the number of threads never exceeds the pool size, no matter how many managers
+ * are registered.
+ * <p>
+ * All callbacks of a single manager are delivered on the same thread, in order. On Android 8.1+
+ * also the GATT callbacks are delivered using the given handler. Managers sharing a thread
+ * share its message queue, and their events are executed in plain FIFO order, as they were
+ * posted. There is no round-robin between managers, so a burst of events from a busy device,
+ * e.g. a stream of notifications, delays events of other managers on the same thread until
+ * it is handled. Use a larger pool, or a dedicated handler, for such devices.
+ * <p>
+ * <b>Note:</b> Synchronous calls, like {@link Request#await()}, must not be made from
+ * callbacks running on a shared thread, as that would block all managers using it.
+ *
+ * @see BleManager#BleManager(Context, Handler)
+ */
+@SuppressWarnings("unused")
+public final class DispatcherPool {
+	/**
+	 * Starts and quits the workers of a {@link Balancer}.
+	 *
+	 * @param <W> the type of the worker.
+	 */
+	interface WorkerFactory<W> {
+		/**
+		 * Starts a new worker.
+		 *
+		 * @param index the index of the worker in the pool.
+		 * @return The started worker.
+		 */
+		@NonNull
+		W start(int index);
+
+		/**
+		 * Quits the worker, after pending work is done.
+		 *
+		 * @param worker the worker to quit.
+		 */
+		void quit(@NonNull W worker);
+	}
+
+	/**
+	 * Assigns users to the least loaded of a bounded number of workers, started lazily.
+	 * It does not depend on Android classes, so it can be tested on the JVM.
+	 * The methods are not synchronized, the owner is responsible for that.
+	 *
+	 * @param <W> the type of the worker.
+	 */
+	static final class Balancer<W> {
+		@NonNull
+		private final WorkerFactory<W> factory;
+		@NonNull
+		private final Object[] workers;
+		@NonNull
+		private final int[] load;
+		private boolean quit;
+
+		Balancer(@IntRange(from = 1) final int size, @NonNull final WorkerFactory<W> factory) {
+			if (size < 1)
+				throw new IllegalArgumentException("Pool size must be at least 1");
+			this.factory = factory;
+			this.workers = new Object[size];
+			this.load = new int[size];
+		}
+
+		/**
+		 * Assigns a new user to the least loaded worker, starting it if needed.
+		 *
+		 * @return The index of the worker.
+		 * @throws IllegalStateException if the pool has been quit.
+		 */
+		int acquire() {
+			if (quit)
+				throw new IllegalStateException("Pool has been quit");
+
+			int index = 0;
+			for (int i = 1; i < load.length; i++) {
+				if (load[i] < load[index])
+					index = i;
+			}
+			if (workers[index] == null)
+				workers[index] = factory.start(index);
+			load[index]++;
+			return index;
+		}
+
+		/**
+		 * Returns the worker with the given index.
+		 */
+		@SuppressWarnings("unchecked")
+		@NonNull
+		W get(final int index) {
+			return (W) workers[index];
+		}
+
+		/**
+		 * Unassigns a user from the worker with the given index. The worker is kept running.
+		 */
+		void release(final int index) {
+			if (load[index] > 0)
+				load[index]--;
+		}
+
+		@NonNull
+		int[] getLoad() {
+			return load.clone();
+		}
+
+		@SuppressWarnings("unchecked")
+		void quit() {
+			quit = true;
+			for (int i = 0; i < workers.length; i++) {
+				if (workers[i] != null) {
+					factory.quit((W) workers[i]);
+					workers[i] = null;
+				}
+			}
+		}
+	}
+
+	@NonNull
+	private final Balancer<HandlerThread> balancer;
+	/** Indexes of threads, which obtained handlers are running on. */
+	@NonNull
+	private final Map<Handler, Integer> handlers = new IdentityHashMap<>();
+
+	/**
+	 * Creates a pool with the given maximum number of threads.
+	 *
+	 * @param size the maximum number of dispatcher threads.
+	 */
+	public DispatcherPool(@IntRange(from = 1) final int size) {
+		balancer = new Balancer<>(size, new WorkerFactory<>() {
+			@NonNull
+			@Override
+			public HandlerThread start(final int index) {
+				final HandlerThread thread = new HandlerThread("BleDispatcher-" + index);
+				thread.start();
+				return thread;
+			}
+
+			@Override
+			public void quit(@NonNull final HandlerThread thread) {
+				thread.quitSafely();
+			}
+		});
+	}
+
+	/**
+	 * Returns a handler running on the least loaded thread of the pool. The handler should
+	 * be given to a single {@link BleManager} and released using {@link #release(Handler)} when
+	 * the manager is no longer used.
+	 *
+	 * @return The handler.
+	 * @throws IllegalStateException if the pool has been quit.
+	 */
+	@NonNull
+	public synchronized Handler obtain() {
+		final int index = balancer.acquire();
+		// Each manager gets its own Handler instance, so that removing callbacks
+		// of one manager does not affect others.
+		final Handler handler = new Handler(balancer.get(index).getLooper());
+		handlers.put(handler, index);
+		return handler;
+	}
+
+	/**
+	 * Releases the handler obtained using {@link #obtain()}. The thread is kept running
+	 * and will be reused by the next manager.
+	 *
+	 * @param handler the handler to be released.
+	 */
+	public synchronized void release(@NonNull final Handler handler) {
+		final Integer index = handlers.remove(handler);
+		if (index != null)
+			balancer.release(index);
+	}
+
+	/**
+	 * Returns the number of managers assigned to each thread.
+	 *
+	 * @return The number of handlers obtained and not released, for each thread.
+	 */
+	@NonNull
+	public synchronized int[] getLoad() {
+		return balancer.getLoad();
+	}
+
+	/**
+	 * Quits all threads of the pool, after pending messages are handled.
+	 * The pool can't be used afterwards.
+	 */
+	public synchronized void quit() {
+		handlers.clear();
+		balancer.quit();
+	}
+}
@@ -0,0 +1,102 @@
+package no.nordicsemi.android.ble;
+
+import android.bluetooth.BluetoothDevice;
+
+import androidx.annotation.IntRange;
+
+import no.nordicsemi.android.ble.annotation.PhyValue;
+
+/**
+ * The pacer chooses the packet length of adaptive {@link WriteRequest}s based on the current
+ * link parameters.
+ * <p>
+ * The packet length is limited so that a packet can be sent within a single connection event
+ * using the current connection interval and PHY. Both are updated during a transfer, so it
+ * adapts to parameters renegotiated by the peripheral. The number of packets in flight is not
+ * controlled, as {@link android.bluetooth.BluetoothGatt} allows only one write at a time.
+ * <p>
+ * The connection interval is known only on Android 8+. On older versions a typical interval
+ * of 45 ms is assumed.
+ * <p>
+ * Link parameters are updated from GATT callbacks, which may be called on a Binder thread,
+ * while packets are sent from the handler thread, so all methods are synchronized.
+ *
+ * @see WriteRequest#adaptive()
+ */
+final class LinkPacer {
+	/** Connection interval assumed if not reported by the system, in 1.25 ms units. */
+	static final int DEFAULT_INTERVAL = 36;
+	/** The minimum packet length, as in the default MTU. */
+	private static final int MIN_PACKET_LENGTH = 20;
+	/** Preamble, access address, LL header, CRC, L2CAP header and ATT header, in bytes. */
+	private static final int PACKET_OVERHEAD = 17;
+	/** Empty PDU sent by the peripheral in response, in bytes. */
+	private static final int EMPTY_PDU_LENGTH = 10;
+	/** Two inter frame spaces, in microseconds. */
+	private static final int IFS = 2 * 150;
+
+	private int interval = DEFAULT_INTERVAL;
+	@PhyValue
+	private int txPhy = BluetoothDevice.PHY_LE_1M;
+
+	/**
+	 * Sets the current connection interval.
+	 *
+	 * @param interval the connection interval, in 1.25 ms units.
+	 * @return True if the interval has changed.
+	 */
+	synchronized boolean setInterval(@IntRange(from = 6, to = 3200) final int interval) {
+		if (this.interval == interval)
+			return false;
+		this.interval = interval;
+		return true;
+	}
+
+	/**
+	 * Sets the current transmitter PHY.
+	 *
+	 * @param txPhy the PHY used for transmission.
+	 * @return True if the PHY has changed.
+	 */
+	synchronized boolean setPhy(@PhyValue final int txPhy) {
+		if (this.txPhy == txPhy)
+			return false;
+		this.txPhy = txPhy;
+		return true;
+	}
+
+	/**
+	 * Restores default parameters after the device has disconnected.
+	 */
+	synchronized void reset() {
+		interval = DEFAULT_INTERVAL;
+		txPhy = BluetoothDevice.PHY_LE_1M;
+	}
+
+	/**
+	 * Returns the maximum length of a packet that can be sent in a single connection event.
+	 *
+	 * @param maxLength the maximum length allowed by the MTU.
+	 * @return The packet length, not greater than maxLength.
+	 */
+	synchronized int getMaxLength(@IntRange(from = 1) final int maxLength) {
+		final int length = (getIntervalMicros() - IFS) / getByteTime() - PACKET_OVERHEAD - EMPTY_PDU_LENGTH;
+		return Math.min(maxLength, Math.max(MIN_PACKET_LENGTH, length));
+	}
+
+	private int getIntervalMicros() {
+		return interval * 1250;
+	}
+
+	/**
+	 * Returns the transmission time of a byte using the current PHY. For LE Coded the
+	 * slowest coding (S=8) is assumed, as the coding used is not reported.
+	 */
+	private int getByteTime() {
+		return switch (txPhy) {
+			case BluetoothDevice.PHY_LE_2M -> 4;
+			case BluetoothDevice.PHY_LE_CODED -> 64;
+			default -> 8;
+		};
+	}
+}
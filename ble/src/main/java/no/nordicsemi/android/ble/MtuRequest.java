@@ -29,6 +29,7 @@ import android.util.Log;
 import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import no.nordicsemi.android.ble.annotation.RequestPriority;
 import no.nordicsemi.android.ble.callback.AfterCallback;
 import no.nordicsemi.android.ble.callback.BeforeCallback;
 import no.nordicsemi.android.ble.callback.FailCallback;
@@ -97,6 +98,20 @@ public final class MtuRequest extends SimpleValueRequest<MtuCallback> implements
 		return this;
 	}
 
+	@NonNull
+	@Override
+	public MtuRequest priority(@RequestPriority final int priority) {
+		super.priority(priority);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public MtuRequest expireAfter(@IntRange(from = 0) final long ttl) {
+		super.expireAfter(ttl);
+		return this;
+	}
+
 	@Override
 	@NonNull
 	public MtuRequest with(@NonNull final MtuCallback callback) {
@@ -0,0 +1,103 @@
+package no.nordicsemi.android.ble;
+
+import android.bluetooth.BluetoothDevice;
+import android.util.Log;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import no.nordicsemi.android.ble.callback.DataBatchReceivedCallback;
+import no.nordicsemi.android.ble.data.Data;
+
+/**
+ * Collects received values and delivers them to a {@link DataBatchReceivedCallback}
+ * in a single call, instead of posting a callback for each packet.
+ * <p>
+ * A batch is delivered when the window has elapsed since its first packet, or immediately
+ * when it reaches the maximum number of packets. With a window of 0 ms the batch contains
+ * all packets received until the callback thread has processed the posted delivery.
+ *
+ * @see ValueChangedCallback#batch(DataBatchReceivedCallback, long, int)
+ */
+final class NotificationBatcher implements Runnable {
+	private static final String TAG = NotificationBatcher.class.getSimpleName();
+
+	/** The default time a packet may wait for others, in milliseconds. */
+	static final long DEFAULT_WINDOW = 20;
+	/** The default number of packets after which a batch is delivered without waiting. */
+	static final int DEFAULT_MAX_PACKETS = 64;
+
+	@NonNull
+	private final DataBatchReceivedCallback callback;
+	private final long window;
+	private final int maxPackets;
+	@NonNull
+	private List<Data> batch;
+	@Nullable
+	private BluetoothDevice device;
+	/** True, if the delivery of the current batch has been scheduled. */
+	private boolean scheduled;
+	/** True, if the delivery of the current batch has been posted, as the batch is full. */
+	private boolean posted;
+
+	NotificationBatcher(@NonNull final DataBatchReceivedCallback callback,
+						@IntRange(from = 0) final long window,
+						@IntRange(from = 1) final int maxPackets) {
+		this.callback = callback;
+		this.window = window;
+		this.maxPackets = maxPackets;
+		this.batch = new ArrayList<>();
+	}
+
+	/**
+	 * Adds the value to the current batch, and schedules its delivery.
+	 *
+	 * @param handler the handler used to deliver the batch.
+	 * @param timer   the handler used to delay the delivery.
+	 * @param device  the device that sent the value.
+	 * @param value   the value.
+	 */
+	void offer(@NonNull final CallbackHandler handler, @NonNull final CallbackHandler timer,
+			   @NonNull final BluetoothDevice device, @Nullable final byte[] value) {
+		final boolean post;
+		final boolean delay;
+		synchronized (this) {
+			batch.add(new Data(value));
+			this.device = device;
+			post = batch.size() >= maxPackets && !posted;
+			delay = !post && !scheduled;
+			posted |= post;
+			scheduled = true;
+		}
+		if (post || (delay && window == 0))
+			handler.post(this);
+		else if (delay)
+			// A timer of an earlier batch, delivered because it was full, may deliver this
+			// batch earlier. This only reduces the latency.
+			timer.postDelayed(() -> handler.post(this), window);
+	}
+
+	@Override
+	public void run() {
+		final List<Data> packets;
+		final BluetoothDevice device;
+		synchronized (this) {
+			if (batch.isEmpty())
+				return;
+			packets = batch;
+			device = this.device;
+			batch = new ArrayList<>();
+			scheduled = false;
+			posted = false;
+		}
+		try {
+			callback.onDataReceived(device, packets);
+		} catch (final Throwable t) {
+			Log.e(TAG, "Exception in Batch callback", t);
+		}
+	}
+}
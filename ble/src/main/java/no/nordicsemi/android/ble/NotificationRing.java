@@ -0,0 +1,122 @@
+package no.nordicsemi.android.ble;
+
+import android.bluetooth.BluetoothDevice;
+import android.util.Log;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import no.nordicsemi.android.ble.callback.DataReceivedCallback;
+import no.nordicsemi.android.ble.data.Data;
+
+/**
+ * A ring buffer of received packets, copied on the Binder thread and delivered on the
+ * callback thread, which does not allocate memory once every slot has been used for
+ * a packet of the same length.
+ * <p>
+ * There is a single producer and a single consumer. A drain is posted only when none is
+ * pending, and delivers all packets received until then using the same {@link Data} instance.
+ * If the consumer can't keep up and the buffer is full, new packets are dropped.
+ *
+ * @see ValueChangedCallback#ringBuffer(int)
+ */
+final class NotificationRing implements Runnable {
+	private static final String TAG = NotificationRing.class.getSimpleName();
+
+	/**
+	 * A reusable {@link Data} pointing to a slot of the ring.
+	 */
+	private static final class View extends Data {
+		private void set(@Nullable final byte[] value) {
+			mValue = value;
+		}
+	}
+
+	@NonNull
+	private final byte[][] slots;
+	private final int mask;
+	@NonNull
+	private final View view = new View();
+	@NonNull
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	/** Index of the next slot to be written. Written only by the producer. */
+	private volatile int tail;
+	/** Index of the next slot to be read. Written only by the consumer. */
+	private volatile int head;
+	private volatile BluetoothDevice device;
+	private volatile DataReceivedCallback callback;
+	private int dropped;
+
+	/**
+	 * Creates the ring buffer.
+	 *
+	 * @param capacity the number of slots, rounded up to a power of 2.
+	 */
+	NotificationRing(@IntRange(from = 1) final int capacity) {
+		final int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+		this.slots = new byte[size][];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Copies the packet to the buffer and schedules delivery, if not already scheduled.
+	 *
+	 * @param handler  the handler used to post delivery.
+	 * @param device   the device that sent the packet.
+	 * @param value    the packet.
+	 * @param callback the callback to be called with the packet.
+	 * @return False, if the buffer was full and the packet has been dropped.
+	 */
+	boolean offer(@NonNull final CallbackHandler handler,
+				  @NonNull final BluetoothDevice device, @Nullable final byte[] value,
+				  @NonNull final DataReceivedCallback callback) {
+		final int t = tail;
+		if (t - head > mask) {
+			dropped++;
+			return false;
+		}
+		final int length = value != null ? value.length : 0;
+		byte[] slot = slots[t & mask];
+		if (slot == null || slot.length != length)
+			slots[t & mask] = slot = new byte[length];
+		if (length > 0)
+			System.arraycopy(value, 0, slot, 0, length);
+		this.device = device;
+		this.callback = callback;
+		tail = t + 1;
+
+		if (scheduled.compareAndSet(false, true))
+			handler.post(this);
+		return true;
+	}
+
+	/**
+	 * Returns the number of packets dropped because the buffer was full.
+	 */
+	int getDroppedPackets() {
+		return dropped;
+	}
+
+	@Override
+	public void run() {
+		// Clear the flag before reading the tail, so that a packet added after
+		// the tail was read schedules another drain.
+		scheduled.set(false);
+		final BluetoothDevice device = this.device;
+		final DataReceivedCallback callback = this.callback;
+		final int t = tail;
+		for (int h = head; h != t; ++h) {
+			view.set(slots[h & mask]);
+			try {
+				callback.onDataReceived(device, view);
+			} catch (final Throwable e) {
+				Log.e(TAG, "Exception in Value callback", e);
+			}
+			head = h + 1;
+		}
+		view.set(null);
+	}
+}
@@ -26,11 +26,13 @@ import android.bluetooth.BluetoothDevice;
 import android.os.Handler;
 import android.util.Log;
 
+import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import no.nordicsemi.android.ble.annotation.PhyMask;
 import no.nordicsemi.android.ble.annotation.PhyOption;
 import no.nordicsemi.android.ble.annotation.PhyValue;
+import no.nordicsemi.android.ble.annotation.RequestPriority;
 import no.nordicsemi.android.ble.callback.AfterCallback;
 import no.nordicsemi.android.ble.callback.BeforeCallback;
 import no.nordicsemi.android.ble.callback.FailCallback;
@@ -148,6 +150,20 @@ public final class PhyRequest extends SimpleValueRequest<PhyCallback> implements
 		return this;
 	}
 
+	@NonNull
+	@Override
+	public PhyRequest priority(@RequestPriority final int priority) {
+		super.priority(priority);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public PhyRequest expireAfter(@IntRange(from = 0) final long ttl) {
+		super.expireAfter(ttl);
+		return this;
+	}
+
 	@Override
 	@NonNull
 	public PhyRequest with(@NonNull final PhyCallback callback) {
@@ -0,0 +1,111 @@
+package no.nordicsemi.android.ble;
+
+import android.bluetooth.BluetoothDevice;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+
+import no.nordicsemi.android.ble.callback.TransferProgressCallback;
+
+/**
+ * Aggregates packets of a split or merged transfer and reports the progress to
+ * a {@link TransferProgressCallback} at most once per interval or byte step, instead of
+ * posting an event for each packet. The completion of the transfer is always reported.
+ */
+final class ProgressAggregator {
+	private static final String TAG = ProgressAggregator.class.getSimpleName();
+
+	/** The default minimum time between progress events, in milliseconds. */
+	static final long DEFAULT_INTERVAL = 100;
+
+	interface Clock {
+		long elapsedRealtime();
+	}
+
+	@NonNull
+	private final TransferProgressCallback callback;
+	@NonNull
+	private final Clock clock;
+	private final long interval;
+	private final int byteStep;
+	private int packets;
+	private long bytes;
+	private long reportedBytes;
+	private long reportedTime;
+
+	/**
+	 * Creates the aggregator.
+	 *
+	 * @param callback the callback.
+	 * @param interval the minimum time between events, in milliseconds, or 0 to disable.
+	 * @param byteStep the minimum number of bytes between events, or 0 to disable.
+	 */
+	ProgressAggregator(@NonNull final TransferProgressCallback callback,
+					   @IntRange(from = 0) final long interval,
+					   @IntRange(from = 0) final int byteStep) {
+		this(callback, interval, byteStep, SystemClock::elapsedRealtime);
+	}
+
+	ProgressAggregator(@NonNull final TransferProgressCallback callback,
+					   @IntRange(from = 0) final long interval,
+					   @IntRange(from = 0) final int byteStep,
+					   @NonNull final Clock clock) {
+		if (interval < 0 || byteStep < 0)
+			throw new IllegalArgumentException("Interval and byte step must not be negative");
+		this.callback = callback;
+		this.interval = interval;
+		this.byteStep = byteStep;
+		this.clock = clock;
+	}
+
+	/**
+	 * Adds a packet to the transfer and posts the progress event if it's due.
+	 * After the transfer is complete, counting starts from 0.
+	 *
+	 * @param handler  the handler used to post the event.
+	 * @param device   the target device.
+	 * @param length   the length of the packet.
+	 * @param complete true, if this was the last packet of the transfer.
+	 */
+	void onPacket(@NonNull final CallbackHandler handler, @NonNull final BluetoothDevice device,
+				  @IntRange(from = 0) final int length, final boolean complete) {
+		packets++;
+		bytes += length;
+		if (!complete && !isDue())
+			return;
+
+		final int packets = this.packets;
+		final long bytes = this.bytes;
+		if (complete) {
+			reset();
+		} else {
+			reportedBytes = bytes;
+			reportedTime = clock.elapsedRealtime();
+		}
+		handler.post(() -> {
+			try {
+				callback.onProgress(device, packets, bytes, complete);
+			} catch (final Throwable t) {
+				Log.e(TAG, "Exception in Progress callback", t);
+			}
+		});
+	}
+
+	/**
+	 * Clears the counters, e.g. when a merged message was discarded.
+	 */
+	void reset() {
+		packets = 0;
+		bytes = 0;
+		reportedBytes = 0;
+		reportedTime = 0;
+	}
+
+	private boolean isDue() {
+		if (byteStep > 0 && bytes - reportedBytes >= byteStep)
+			return true;
+		return interval > 0 && clock.elapsedRealtime() - reportedTime >= interval;
+	}
+}
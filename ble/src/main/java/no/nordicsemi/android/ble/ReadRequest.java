@@ -33,12 +33,17 @@ import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import no.nordicsemi.android.ble.annotation.RequestPriority;
 import no.nordicsemi.android.ble.callback.AfterCallback;
 import no.nordicsemi.android.ble.callback.BeforeCallback;
 import no.nordicsemi.android.ble.callback.DataReceivedCallback;
 import no.nordicsemi.android.ble.callback.FailCallback;
 import no.nordicsemi.android.ble.callback.InvalidRequestCallback;
 import no.nordicsemi.android.ble.callback.ReadProgressCallback;
+import no.nordicsemi.android.ble.callback.TransferProgressCallback;
 import no.nordicsemi.android.ble.callback.SuccessCallback;
 import no.nordicsemi.android.ble.callback.profile.ProfileReadResponse;
 import no.nordicsemi.android.ble.data.Data;
@@ -55,12 +60,18 @@ import no.nordicsemi.android.ble.exception.RequestFailedException;
 @SuppressWarnings({"unused", "WeakerAccess"})
 public final class ReadRequest extends TimeoutableValueRequest<DataReceivedCallback> implements Operation  {
 	private ReadProgressCallback progressCallback;
+	private ProgressAggregator progress;
 	private DataMerger dataMerger;
 	private DataStream buffer;
 	private DataFilter filter;
 	private PacketFilter packetFilter;
 	private int count = 0;
 	private boolean complete = false;
+	private boolean singleFlight;
+	/** Requests which joined this single-flight read, guarded by this. */
+	private List<ReadRequest> followers;
+	/** Whether other requests may still join this read, guarded by this. */
+	private boolean joinable = true;
 
 	ReadRequest(@NonNull final Type type) {
 		super(type);
@@ -130,6 +141,20 @@ public final class ReadRequest extends TimeoutableValueRequest<DataReceivedCallb
 		return this;
 	}
 
+	@NonNull
+	@Override
+	public ReadRequest priority(@RequestPriority final int priority) {
+		super.priority(priority);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public ReadRequest expireAfter(@IntRange(from = 0) final long ttl) {
+		super.expireAfter(ttl);
+		return this;
+	}
+
 	@Override
 	@NonNull
 	public ReadRequest with(@NonNull final DataReceivedCallback callback) {
@@ -196,6 +221,72 @@ public final class ReadRequest extends TimeoutableValueRequest<DataReceivedCallb
 		return this;
 	}
 
+	/**
+	 * Sets a callback reporting the progress of merging a message at most every 100 ms,
+	 * and when the message is complete.
+	 *
+	 * @param callback the progress callback.
+	 * @return The request.
+	 */
+	@NonNull
+	public ReadRequest progress(@NonNull final TransferProgressCallback callback) {
+		return progress(callback, ProgressAggregator.DEFAULT_INTERVAL, 0);
+	}
+
+	/**
+	 * Sets a callback reporting the progress of merging a message when the given time has
+	 * elapsed, or the given number of bytes were received since the last report, whichever
+	 * comes first, and when the message is complete.
+	 *
+	 * @param callback the progress callback.
+	 * @param interval the minimum time between reports, in milliseconds, or 0 to disable.
+	 * @param byteStep the minimum number of bytes between reports, or 0 to disable.
+	 * @return The request.
+	 */
+	@NonNull
+	public ReadRequest progress(@NonNull final TransferProgressCallback callback,
+								@IntRange(from = 0) final long interval,
+								@IntRange(from = 0) final int byteStep) {
+		this.progress = new ProgressAggregator(callback, interval, byteStep);
+		return this;
+	}
+
+	/**
+	 * Enables single-flight mode. When this request is enqueued while another single-flight
+	 * read of the same characteristic or descriptor is queued or in progress, it is not executed.
+	 * Instead, it joins the other request and completes with the same {@link Data} received
+	 * in a single ATT round trip, or fails with the same status.
+	 * <p>
+	 * This is useful when multiple components read the same value, e.g. the battery level,
+	 * at the same time. A request may join only requests with the same or higher priority,
+	 * and only before the value has been received.
+	 * <p>
+	 * Single-flight mode is ignored for requests with a filter or a merger, and for requests
+	 * enqueued in {@link BleManager#initialize()} or added to a {@link RequestQueue}.
+	 * The before callback and the timeout of a request that joined another one are not used.
+	 *
+	 * @return The request.
+	 * @throws IllegalStateException thrown when the request has already been enqueued.
+	 */
+	@NonNull
+	public ReadRequest singleFlight() {
+		if (enqueued)
+			throw new IllegalStateException("Request already enqueued");
+		this.singleFlight = true;
+		return this;
+	}
+
+	/**
+	 * Cancels the request. If other single-flight requests have joined this one, the most urgent
+	 * of them takes over the read, which is still executed for them.
+	 */
+	@Override
+	public void cancel() {
+		if (requestHandler != null)
+			requestHandler.handOver(this);
+		super.cancel();
+	}
+
 	/**
 	 * Same as {@link #await(Class)}, but if the response class extends
 	 * {@link ProfileReadResponse} and the received response is not valid
@@ -268,6 +359,108 @@ public final class ReadRequest extends TimeoutableValueRequest<DataReceivedCallb
 		return response;
 	}
 
+	/**
+	 * Returns whether the request may share its result with other requests.
+	 *
+	 * @see #singleFlight()
+	 */
+	boolean isSingleFlight() {
+		return singleFlight && filter == null && packetFilter == null && dataMerger == null
+				&& (type == Type.READ || type == Type.READ_DESCRIPTOR);
+	}
+
+	/**
+	 * Attaches the given request to this one, so that it completes with the same result.
+	 *
+	 * @param follower a single-flight request reading the same attribute.
+	 * @return True if the request has joined, false if this request has already received
+	 * the value, or can't be joined.
+	 */
+	synchronized boolean join(@NonNull final ReadRequest follower) {
+		if (!joinable || finished || cancelled || !isSingleFlight() || !follower.isSingleFlight())
+			return false;
+		// A more urgent request must not wait for a queued one with lower priority.
+		if (!started && follower.priority < priority)
+			return false;
+		if (followers == null)
+			followers = new ArrayList<>(2);
+		followers.add(follower);
+		return true;
+	}
+
+	/**
+	 * Closes the request for joining and detaches the requests which have joined it, if any.
+	 * The most urgent of them becomes the request the others have joined.
+	 *
+	 * @return The request which takes over the read, or null if no request has joined this one,
+	 * or the value has already been received.
+	 */
+	@Nullable
+	synchronized ReadRequest handOver() {
+		if (!joinable || followers == null || followers.isEmpty())
+			return null;
+		joinable = false;
+		ReadRequest successor = followers.get(0);
+		for (final ReadRequest follower : followers) {
+			if (follower.priority < successor.priority)
+				successor = follower;
+		}
+		followers.remove(successor);
+		synchronized (successor) {
+			successor.followers = followers.isEmpty() ? null : followers;
+		}
+		followers = null;
+		return successor;
+	}
+
+	/**
+	 * Closes the request for joining and returns the requests which have joined, if any.
+	 */
+	@Nullable
+	private List<ReadRequest> closeFollowers() {
+		final List<ReadRequest> followers;
+		final boolean closed;
+		synchronized (this) {
+			closed = joinable;
+			joinable = false;
+			followers = this.followers;
+		}
+		if (closed && requestHandler != null && isSingleFlight())
+			requestHandler.onReadClosed(this);
+		return followers;
+	}
+
+	@Override
+	boolean notifySuccess(@NonNull final BluetoothDevice device) {
+		final List<ReadRequest> followers = closeFollowers();
+		final boolean result = super.notifySuccess(device);
+		if (followers != null) {
+			for (final ReadRequest follower : followers)
+				follower.notifySuccess(device);
+		}
+		return result;
+	}
+
+	@Override
+	void notifyFail(@NonNull final BluetoothDevice device, final int status) {
+		final List<ReadRequest> followers = closeFollowers();
+		super.notifyFail(device, status);
+		if (followers != null) {
+			for (final ReadRequest follower : followers)
+				follower.notifyFail(device, status);
+		}
+	}
+
+	@Override
+	void notifyInvalidRequest() {
+		final List<ReadRequest> followers = closeFollowers();
+		super.notifyInvalidRequest();
+		if (followers != null) {
+			for (final ReadRequest follower : followers)
+				follower.notifyInvalidRequest();
+		}
+	}
+
 	boolean matches(final byte[] packet) {
 		return filter == null || filter.filter(packet);
 	}
@@ -276,6 +469,17 @@ public final class ReadRequest extends TimeoutableValueRequest<DataReceivedCallb
 		// Keep a reference to the value callback, as it may change during execution
 		final DataReceivedCallback valueCallback = this.valueCallback;
 
+		// Single-flight reads have no filters nor mergers, so the value is complete.
+		final List<ReadRequest> followers = closeFollowers();
+		if (followers != null) {
+			complete = true;
+			final Data data = new Data(value);
+			deliver(valueCallback, device, data);
+			for (final ReadRequest follower : followers)
+				follower.deliver(follower.valueCallback, device, data);
+			return;
+		}
+
 		// With no value callback there is no need for any merging
 		if (valueCallback == null) {
 			if (packetFilter == null || packetFilter.filter(value))
@@ -285,47 +489,57 @@ public final class ReadRequest extends TimeoutableValueRequest<DataReceivedCallb
 
 		if (dataMerger == null) {
 			complete = true;
-			final Data data = new Data(value);
-			handler.post(() -> {
-				try {
-					valueCallback.onDataReceived(device, data);
-				} catch (final Throwable t) {
-					Log.e(TAG, "Exception in Value callback", t);
-				}
-			});
+			deliver(valueCallback, device, new Data(value));
 		} else {
-			final int currentCount = count;
-			handler.post(() -> {
-				if (progressCallback != null) {
+			final ReadProgressCallback progressCallback = this.progressCallback;
+			if (progressCallback != null) {
+				final int currentCount = count;
+				handler.post(() -> {
 					try {
 						progressCallback.onPacketReceived(device, value, currentCount);
 					} catch (final Throwable t) {
 						Log.e(TAG, "Exception in Progress callback", t);
 					}
-				}
-			});
+				});
+			}
 			if (buffer == null)
 				buffer = new DataStream();
-			if (dataMerger.merge(buffer, value, count++)) {
+			boolean last = dataMerger.merge(buffer, value, count++);
+			if (progress != null)
+				progress.onPacket(handler, device, value != null ? value.length : 0, last);
+			while (last) {
 				final byte[] merged = buffer.toByteArray();
 				if (packetFilter == null || packetFilter.filter(merged)) {
 					complete = true;
-					final Data data = new Data(merged);
-					handler.post(() -> {
-						try {
-							valueCallback.onDataReceived(device, data);
-						} catch (final Throwable t) {
-							Log.e(TAG, "Exception in Value callback", t);
-						}
-					});
+					deliver(valueCallback, device, new Data(merged));
 				}
 				buffer = null;
 				count = 0;
+
+				// The packet may contain more than one message. If the one merged was filtered
+				// out, try the next one.
+				if (complete || !dataMerger.hasPendingData())
+					break;
+				buffer = new DataStream();
+				last = dataMerger.merge(buffer, null, count++);
 			} // else
 			// wait for more packets to be merged
 		}
 	}
 
+	private void deliver(@Nullable final DataReceivedCallback valueCallback,
+						 @NonNull final BluetoothDevice device, @NonNull final Data data) {
+		if (valueCallback == null)
+			return;
+		handler.post(() -> {
+			try {
+				valueCallback.onDataReceived(device, data);
+			} catch (final Throwable t) {
+				Log.e(TAG, "Exception in Value callback", t);
+			}
+		});
+	}
+
 	@SuppressWarnings("BooleanMethodIsAlwaysInverted")
 	boolean hasMore() {
 		return !complete && !cancelled && !finished;
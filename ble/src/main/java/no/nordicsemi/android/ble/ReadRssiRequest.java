@@ -29,6 +29,7 @@ import android.util.Log;
 import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import no.nordicsemi.android.ble.annotation.RequestPriority;
 import no.nordicsemi.android.ble.callback.AfterCallback;
 import no.nordicsemi.android.ble.callback.BeforeCallback;
 import no.nordicsemi.android.ble.callback.FailCallback;
@@ -91,6 +92,20 @@ public final class ReadRssiRequest extends SimpleValueRequest<RssiCallback> impl
 		return this;
 	}
 
+	@NonNull
+	@Override
+	public ReadRssiRequest priority(@RequestPriority final int priority) {
+		super.priority(priority);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public ReadRssiRequest expireAfter(@IntRange(from = 0) final long ttl) {
+		super.expireAfter(ttl);
+		return this;
+	}
+
 	@Override
 	@NonNull
 	public ReadRssiRequest with(@NonNull final RssiCallback callback) {
@@ -0,0 +1,445 @@
+package no.nordicsemi.android.ble;
+
+import android.bluetooth.BluetoothDevice;
+import android.os.SystemClock;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import no.nordicsemi.android.ble.callback.ClosedCallback;
+import no.nordicsemi.android.ble.callback.DataReceivedCallback;
+import no.nordicsemi.android.ble.callback.FailCallback;
+import no.nordicsemi.android.ble.callback.SuccessCallback;
+import no.nordicsemi.android.ble.data.Data;
+import no.nordicsemi.android.ble.data.DataStream;
+
+/**
+ * A reliable, ordered stream of messages sent over a pair of unacknowledged channels:
+ * notifications and write without response.
+ * <p>
+ * Messages are split into packets with a 2-byte header: the packet type with the
+ * end-of-message flag, and an 8-bit sequence number. The receiver accepts packets only in
+ * order and replies with cumulative ACKs, carrying the sequence number of the next expected
+ * packet. ACKs are delayed, so that a single ACK confirms up to half of the window.
+ * The sender keeps up to {@link #window(int) window} packets unacknowledged and retransmits
+ * all of them (Go-Back-N) when the retransmission timer expires, or after 3 duplicate ACKs.
+ * The retransmission timeout is estimated from the round trip time.
+ * <p>
+ * The stream is bidirectional; both sides must use a {@link ReliableStream}.
+ * The stream is closed when the device disconnects, or fails when a packet could not be
+ * delivered after {@link #MAX_RETRANSMISSIONS} attempts.
+ *
+ * @see BleManager#openReliableStream(android.bluetooth.BluetoothGattCharacteristic, android.bluetooth.BluetoothGattCharacteristic)
+ * @see BleManager#openServerReliableStream(android.bluetooth.BluetoothGattCharacteristic, android.bluetooth.BluetoothGattCharacteristic)
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class ReliableStream {
+	/** The default number of packets sent without waiting for an ACK. */
+	public static final int DEFAULT_WINDOW = 16;
+	/** The maximum window, half of the sequence number space. */
+	public static final int MAX_WINDOW = 127;
+	/** The number of retransmissions of a packet after which the stream fails. */
+	public static final int MAX_RETRANSMISSIONS = 8;
+	/** The length of the packet header. */
+	static final int HEADER_LENGTH = 2;
+	static final int TYPE_DATA = 0x00;
+	static final int TYPE_ACK = 0x01;
+	static final int FLAG_END = 0x80;
+	private static final int TYPE_MASK = 0x0F;
+	private static final int DUPLICATE_ACK_THRESHOLD = 3;
+	private static final long INITIAL_RTO = 1000;
+	private static final long MIN_RTO = 200;
+	private static final long MAX_RTO = 10000;
+	private static final long ACK_DELAY = 20;
+
+	interface Clock {
+		long elapsedRealtime();
+	}
+
+	/**
+	 * The unacknowledged channel used to send packets.
+	 */
+	interface Link {
+		/**
+		 * Sends the packet without waiting for a confirmation.
+		 *
+		 * @param packet the packet, including the header.
+		 */
+		void send(@NonNull final byte[] packet);
+
+		/**
+		 * Returns the maximum length of a packet, including the header.
+		 */
+		int getMaxPacketLength();
+	}
+
+	private static final class Segment {
+		@NonNull
+		private final byte[] packet;
+		@Nullable
+		private final SuccessCallback callback;
+		private long sentTime;
+		private boolean retransmitted;
+
+		private Segment(@NonNull final byte[] packet, @Nullable final SuccessCallback callback) {
+			this.packet = packet;
+			this.callback = callback;
+		}
+
+		private int seq() {
+			return packet[1] & 0xFF;
+		}
+	}
+
+	@NonNull
+	private final Link link;
+	@NonNull
+	private final CallbackHandler handler;
+	@NonNull
+	private final Clock clock;
+	private DataReceivedCallback dataCallback;
+	private ClosedCallback closedCallback;
+	private FailCallback failCallback;
+	private BluetoothDevice device;
+	private int window = DEFAULT_WINDOW;
+	private boolean closed;
+
+	// Sender
+	/** Packets waiting for the window to open. */
+	private final Deque<Segment> pending = new ArrayDeque<>();
+	/** Packets sent, but not acknowledged, in order. */
+	private final Deque<Segment> unacknowledged = new ArrayDeque<>();
+	private int nextSeq;
+	private int duplicateAcks;
+	private int retransmissions;
+	private long rto = INITIAL_RTO;
+	private long srtt = -1;
+	private long rttvar;
+	/** Incremented to invalidate a retransmission timer already posted. */
+	private int timerId;
+
+	// Receiver
+	@Nullable
+	private DataStream message;
+	private int expectedSeq;
+	private int receivedSinceAck;
+	private int duplicatesSinceAck;
+	private boolean ackScheduled;
+	private int ackTimerId;
+
+	ReliableStream(@NonNull final Link link, @NonNull final CallbackHandler handler) {
+		this(link, handler, SystemClock::elapsedRealtime);
+	}
+
+	ReliableStream(@NonNull final Link link, @NonNull final CallbackHandler handler,
+				   @NonNull final Clock clock) {
+		this.link = link;
+		this.handler = handler;
+		this.clock = clock;
+	}
+
+	/**
+	 * Sets the callback called with every complete message received from the remote device.
+	 *
+	 * @param callback the callback.
+	 * @return The stream.
+	 */
+	@NonNull
+	public ReliableStream with(@NonNull final DataReceivedCallback callback) {
+		this.dataCallback = callback;
+		return this;
+	}
+
+	/**
+	 * Sets the callback called when the stream could not deliver a packet.
+	 * The reason is {@link FailCallback#REASON_TIMEOUT}. The stream is closed afterwards.
+	 *
+	 * @param callback the callback.
+	 * @return The stream.
+	 */
+	@NonNull
+	public ReliableStream fail(@NonNull final FailCallback callback) {
+		this.failCallback = callback;
+		return this;
+	}
+
+	/**
+	 * Sets the callback called when the stream has been closed, either using {@link #close()},
+	 * because the device has disconnected, or because it failed.
+	 *
+	 * @param callback the callback.
+	 * @return The stream.
+	 */
+	@NonNull
+	public ReliableStream then(@NonNull final ClosedCallback callback) {
+		this.closedCallback = callback;
+		return this;
+	}
+
+	/**
+	 * Sets the maximum number of packets sent without waiting for an ACK.
+	 * A larger window gives higher throughput, but more packets need to be sent again
+	 * when one is lost.
+	 *
+	 * @param window the window, from 1 to {@link #MAX_WINDOW}, by default {@link #DEFAULT_WINDOW}.
+	 * @return The stream.
+	 */
+	@NonNull
+	public synchronized ReliableStream window(@IntRange(from = 1, to = MAX_WINDOW) final int window) {
+		if (window < 1 || window > MAX_WINDOW)
+			throw new IllegalArgumentException("Window must be between 1 and " + MAX_WINDOW);
+		this.window = window;
+		return this;
+	}
+
+	/**
+	 * Sends the message to the remote device.
+	 *
+	 * @param message the message.
+	 * @throws IllegalStateException if the stream was closed.
+	 */
+	public void send(@NonNull final byte[] message) {
+		send(message, null);
+	}
+
+	/**
+	 * Sends the message to the remote device.
+	 *
+	 * @param message  the message.
+	 * @param callback the callback called when the whole message has been acknowledged.
+	 * @throws IllegalStateException if the stream was closed.
+	 */
+	public synchronized void send(@NonNull final byte[] message,
+								  @Nullable final SuccessCallback callback) {
+		if (closed)
+			throw new IllegalStateException("Stream closed");
+
+		final int maxLength = Math.max(1, link.getMaxPacketLength() - HEADER_LENGTH);
+		int offset = 0;
+		do {
+			final int length = Math.min(maxLength, message.length - offset);
+			final boolean last = offset + length == message.length;
+			final byte[] packet = new byte[HEADER_LENGTH + length];
+			packet[0] = (byte) (TYPE_DATA | (last ? FLAG_END : 0));
+			packet[1] = (byte) nextSeq;
+			System.arraycopy(message, offset, packet, HEADER_LENGTH, length);
+			pending.add(new Segment(packet, last ? callback : null));
+			nextSeq = (nextSeq + 1) & 0xFF;
+			offset += length;
+		} while (offset < message.length);
+		flush();
+	}
+
+	/**
+	 * Returns the number of packets not yet acknowledged, including those waiting to be sent.
+	 */
+	public synchronized int getOutstandingPackets() {
+		return pending.size() + unacknowledged.size();
+	}
+
+	/**
+	 * Returns the current retransmission timeout, in milliseconds.
+	 */
+	synchronized long getRetransmissionTimeout() {
+		return rto;
+	}
+
+	/**
+	 * Returns whether the stream has been closed.
+	 */
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Closes the stream. Messages not yet acknowledged are discarded.
+	 */
+	public void close() {
+		final ClosedCallback callback;
+		synchronized (this) {
+			if (closed)
+				return;
+			closed = true;
+			pending.clear();
+			unacknowledged.clear();
+			timerId++;
+			ackTimerId++;
+			callback = closedCallback;
+		}
+		if (callback != null)
+			handler.post(callback::onClosed);
+	}
+
+	/**
+	 * Method called when a packet was received from the remote device.
+	 *
+	 * @param device the device.
+	 * @param data   the received packet.
+	 */
+	void onPacketReceived(@NonNull final BluetoothDevice device, @NonNull final Data data) {
+		final byte[] packet = data.getValue();
+		if (packet == null || packet.length < HEADER_LENGTH)
+			return;
+		synchronized (this) {
+			if (closed)
+				return;
+			this.device = device;
+			switch (packet[0] & TYPE_MASK) {
+				case TYPE_DATA -> onDataPacket(packet);
+				case TYPE_ACK -> onAck(packet[1] & 0xFF);
+			}
+		}
+	}
+
+	// Sender
+
+	private void flush() {
+		while (!pending.isEmpty() && unacknowledged.size() < window) {
+			final Segment segment = pending.poll();
+			segment.sentTime = clock.elapsedRealtime();
+			unacknowledged.add(segment);
+			link.send(segment.packet);
+		}
+		if (!unacknowledged.isEmpty() && timerId % 2 == 0)
+			startTimer();
+	}
+
+	private void onAck(final int ack) {
+		if (unacknowledged.isEmpty())
+			return;
+		final int acknowledged = (ack - unacknowledged.peek().seq()) & 0xFF;
+		if (acknowledged == 0) {
+			if (++duplicateAcks == DUPLICATE_ACK_THRESHOLD)
+				retransmit();
+			return;
+		}
+		// An old ACK, or one for packets never sent.
+		if (acknowledged > unacknowledged.size())
+			return;
+
+		Segment segment = null;
+		for (int i = 0; i < acknowledged; i++) {
+			segment = unacknowledged.poll();
+			if (segment.callback != null) {
+				final SuccessCallback callback = segment.callback;
+				final BluetoothDevice device = this.device;
+				handler.post(() -> callback.onRequestCompleted(device));
+			}
+		}
+		// Karn's algorithm: retransmitted packets do not give RTT samples.
+		if (!segment.retransmitted)
+			updateRto(clock.elapsedRealtime() - segment.sentTime);
+		duplicateAcks = 0;
+		retransmissions = 0;
+		stopTimer();
+		flush();
+	}
+
+	private void updateRto(final long rtt) {
+		if (srtt < 0) {
+			srtt = rtt;
+			rttvar = rtt / 2;
+		} else {
+			rttvar += (Math.abs(srtt - rtt) - rttvar) / 4;
+			srtt += (rtt - srtt) / 8;
+		}
+		rto = Math.min(MAX_RTO, Math.max(MIN_RTO, srtt + 4 * rttvar));
+	}
+
+	/**
+	 * Starts the retransmission timer. An odd timer ID means the timer is running.
+	 * The handler cannot cancel delayed tasks reliably, so expired timers are ignored by ID.
+	 */
+	private void startTimer() {
+		final int id = timerId % 2 == 0 ? ++timerId : (timerId += 2);
+		handler.postDelayed(() -> onTimeout(id), rto);
+	}
+
+	private void stopTimer() {
+		if (timerId % 2 != 0)
+			timerId++;
+	}
+
+	private void onTimeout(final int id) {
+		final FailCallback callback;
+		final BluetoothDevice device;
+		synchronized (this) {
+			if (closed || id != timerId)
+				return;
+			if (retransmissions < MAX_RETRANSMISSIONS) {
+				rto = Math.min(MAX_RTO, rto * 2);
+				retransmit();
+				return;
+			}
+			callback = failCallback;
+			device = this.device;
+		}
+		if (callback != null)
+			handler.post(() -> callback.onRequestFailed(device, FailCallback.REASON_TIMEOUT));
+		close();
+	}
+
+	private void retransmit() {
+		retransmissions++;
+		for (final Segment segment : unacknowledged) {
+			segment.retransmitted = true;
+			link.send(segment.packet);
+		}
+		startTimer();
+	}
+
+	// Receiver
+
+	private void onDataPacket(@NonNull final byte[] packet) {
+		if ((packet[1] & 0xFF) != expectedSeq) {
+			// A packet was lost, or a retransmission of an acknowledged one arrived.
+			// Duplicate ACKs allow the sender to retransmit before the timeout.
+			if (duplicatesSinceAck++ < DUPLICATE_ACK_THRESHOLD)
+				sendAck();
+			else
+				scheduleAck();
+			return;
+		}
+		expectedSeq = (expectedSeq + 1) & 0xFF;
+		duplicatesSinceAck = 0;
+		if (message == null)
+			message = new DataStream();
+		message.write(packet, HEADER_LENGTH, packet.length - HEADER_LENGTH);
+		if ((packet[0] & FLAG_END) != 0) {
+			final Data data = message.toData();
+			message = null;
+			final DataReceivedCallback callback = dataCallback;
+			final BluetoothDevice device = this.device;
+			if (callback != null)
+				handler.post(() -> callback.onDataReceived(device, data));
+		}
+		if (++receivedSinceAck >= Math.max(1, window / 2))
+			sendAck();
+		else
+			scheduleAck();
+	}
+
+	private void scheduleAck() {
+		if (ackScheduled)
+			return;
+		ackScheduled = true;
+		final int id = ++ackTimerId;
+		handler.postDelayed(() -> {
+			synchronized (this) {
+				if (!closed && ackScheduled && id == ackTimerId)
+					sendAck();
+			}
+		}, ACK_DELAY);
+	}
+
+	private void sendAck() {
+		ackScheduled = false;
+		ackTimerId++;
+		receivedSinceAck = 0;
+		link.send(new byte[] { TYPE_ACK, (byte) expectedSeq });
+	}
+}
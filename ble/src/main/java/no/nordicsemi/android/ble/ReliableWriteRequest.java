@@ -28,6 +28,7 @@ import android.os.Handler;
 import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import no.nordicsemi.android.ble.annotation.RequestPriority;
 import no.nordicsemi.android.ble.callback.AfterCallback;
 import no.nordicsemi.android.ble.callback.BeforeCallback;
 import no.nordicsemi.android.ble.callback.FailCallback;
@@ -100,6 +101,20 @@ public final class ReliableWriteRequest extends RequestQueue {
 		return this;
 	}
 
+	@NonNull
+	@Override
+	public ReliableWriteRequest priority(@RequestPriority final int priority) {
+		super.priority(priority);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public ReliableWriteRequest expireAfter(@IntRange(from = 0) final long ttl) {
+		super.expireAfter(ttl);
+		return this;
+	}
+
 	@NonNull
 	@Override
 	public ReliableWriteRequest timeout(@IntRange(from = 0) final long timeout) {
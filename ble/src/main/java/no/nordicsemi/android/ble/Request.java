@@ -30,6 +30,7 @@ import android.bluetooth.BluetoothGattDescriptor;
 import android.os.ConditionVariable;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.IntRange;
@@ -38,6 +39,7 @@ import androidx.annotation.Nullable;
 import no.nordicsemi.android.ble.annotation.ConnectionPriority;
 import no.nordicsemi.android.ble.annotation.PhyMask;
 import no.nordicsemi.android.ble.annotation.PhyOption;
+import no.nordicsemi.android.ble.annotation.RequestPriority;
 import no.nordicsemi.android.ble.annotation.WriteType;
 import no.nordicsemi.android.ble.callback.AfterCallback;
 import no.nordicsemi.android.ble.callback.BeforeCallback;
@@ -45,6 +47,7 @@ import no.nordicsemi.android.ble.callback.FailCallback;
 import no.nordicsemi.android.ble.callback.InvalidRequestCallback;
 import no.nordicsemi.android.ble.callback.SuccessCallback;
 import no.nordicsemi.android.ble.data.Data;
+import no.nordicsemi.android.ble.data.DataSource;
 
 /**
  * On Android, when multiple BLE operations needs to be done, it is required to wait for a proper
@@ -57,6 +60,26 @@ import no.nordicsemi.android.ble.data.Data;
 public abstract class Request {
 	protected static final String TAG = Request.class.getSimpleName();
 
+	/**
+	 * The highest priority, used for short operations that should be executed as soon as
+	 * possible, for example writing to a control point characteristic.
+	 */
+	public static final int PRIORITY_CONTROL = 0;
+	/**
+	 * The default priority of every request.
+	 */
+	public static final int PRIORITY_INTERACTIVE = 1;
+	/**
+	 * Priority for large transfers, for example sending a firmware image in a number of
+	 * Write Requests. Such requests are executed when there are no control or interactive
+	 * requests waiting, but they are guaranteed to make progress.
+	 */
+	public static final int PRIORITY_BULK = 2;
+	/**
+	 * The lowest priority, for requests that may be executed when the manager is idle.
+	 */
+	public static final int PRIORITY_BACKGROUND = 3;
+
 	enum Type {
 		SET,
 		CONNECT,
@@ -100,6 +123,15 @@ public abstract class Request {
 		SLEEP,
 	}
 
+	interface Clock {
+		long elapsedRealtime();
+	}
+
+	/**
+	 * The clock used to measure the time requests spend in the queue. Replaced in tests.
+	 */
+	static Clock clock = SystemClock::elapsedRealtime;
+
 	RequestHandler requestHandler;
 	CallbackHandler handler;
 
@@ -115,6 +147,17 @@ public abstract class Request {
 	BeforeCallback internalBeforeCallback;
 	SuccessCallback internalSuccessCallback;
 	FailCallback internalFailCallback;
+	@RequestPriority
+	int priority = PRIORITY_INTERACTIVE;
+	/**
+	 * Maximum time the request may wait in the queue, in milliseconds, or 0 for no limit.
+	 */
+	long ttl;
+	/**
+	 * The time of the {@link #clock} after which the request expires,
+	 * or 0 if it doesn't.
+	 */
+	long expiresAt;
 	boolean enqueued;
 	boolean started, finished;
 
@@ -374,6 +417,25 @@ public abstract class Request {
 		return new WriteRequest(Type.WRITE, characteristic, value, offset, length, writeType);
 	}
 
+	/**
+	 * Creates new Write Characteristic request, which reads the data from the given source
+	 * while they are being sent. The data are always split into packets.
+	 * The request will not be executed if given characteristic is null or does not have
+	 * WRITE property. After the operation is complete a proper callback will be invoked.
+	 *
+	 * @param characteristic characteristic to be written.
+	 * @param source         source of the data to be written.
+	 * @param writeType      write type to be used.
+	 * @return The new request.
+	 */
+	@NonNull
+	static WriteRequest newWriteRequest(
+			@Nullable final BluetoothGattCharacteristic characteristic,
+			@NonNull final DataSource source,
+			@WriteType final int writeType) {
+		return new WriteRequest(Type.WRITE, characteristic, source, writeType);
+	}
+
 	/**
 	 * Creates new Read Descriptor request. The request will not be executed if given descriptor
 	 * is null. After the operation is complete a proper callback will be invoked.
@@ -442,6 +504,18 @@ public abstract class Request {
 		return new ReliableWriteRequest();
 	}
 
+	/**
+	 * Creates new Bulk Transfer request. All operations that should be sent over
+	 * the fastest link should be enqueued inside the returned request before enqueuing it in the
+	 * BleManager.
+	 *
+	 * @return The new request.
+	 */
+	@NonNull
+	static BulkTransferRequest newBulkTransferRequest() {
+		return new BulkTransferRequest();
+	}
+
 	/**
 	 * Creates new Begin Reliable Write request.
 	 *
@@ -1202,6 +1276,81 @@ public abstract class Request {
 		return this;
 	}
 
+	/**
+	 * Sets the priority of the request. Requests with higher priority are executed before
+	 * requests with lower priority, even if they were enqueued later. Requests with the same
+	 * priority are executed in the order they were enqueued.
+	 * <p>
+	 * A request that has already started, for example a Write Request split into multiple packets,
+	 * or a {@link RequestQueue}, is not interrupted by a request with a different priority,
+	 * but a higher priority request may be executed between the packets of a split
+	 * Write Request.
+	 * <p>
+	 * Lower priority requests are not starved. They will be executed after a number of
+	 * requests with higher priority, even if more of those are waiting.
+	 * <p>
+	 * The priority has no effect on requests enqueued in the
+	 * {@link BleManager#initialize()} method, nor on requests added to a {@link RequestQueue}.
+	 *
+	 * @param priority the request priority, from {@link #PRIORITY_CONTROL} to
+	 *                 {@link #PRIORITY_BACKGROUND}, by default {@link #PRIORITY_INTERACTIVE}.
+	 * @return The request.
+	 * @throws IllegalArgumentException thrown when the priority is out of range.
+	 * @throws IllegalStateException thrown when the request has already been enqueued.
+	 */
+	@NonNull
+	public Request priority(@RequestPriority final int priority) {
+		if (priority < PRIORITY_CONTROL || priority > PRIORITY_BACKGROUND)
+			throw new IllegalArgumentException("Priority must be between " + PRIORITY_CONTROL + " and " + PRIORITY_BACKGROUND);
+		if (enqueued)
+			throw new IllegalStateException("Request already enqueued");
+		this.priority = priority;
+		return this;
+	}
+
+	/**
+	 * Sets the maximum time the request may wait in the queue before it is started.
+	 * If the request isn't started within this time, for example because the queue is
+	 * congested, it will fail with {@link FailCallback#REASON_EXPIRED} without being executed.
+	 * <p>
+	 * This is different from {@link TimeoutableRequest#timeout(long)}, which limits the time
+	 * of execution of a request, counting from the moment it is started.
+	 *
+	 * @param ttl the time-to-live in the queue, in milliseconds, or 0 to wait without limit
+	 *            (default).
+	 * @return The request.
+	 * @throws IllegalStateException thrown when the request has already been enqueued.
+	 */
+	@NonNull
+	public Request expireAfter(@IntRange(from = 0) final long ttl) {
+		if (enqueued)
+			throw new IllegalStateException("Request already enqueued");
+		this.ttl = ttl;
+		return this;
+	}
+
+	/**
+	 * Marks the request as enqueued. If the request has time-to-live set, its deadline
+	 * is calculated.
+	 */
+	void notifyEnqueued() {
+		enqueued = true;
+		if (ttl > 0)
+			expiresAt = clock.elapsedRealtime() + ttl;
+	}
+
+	/**
+	 * Returns whether the request has waited in the queue for longer than allowed.
+	 * A request that has already been started, e.g. a split write re-queued between packets,
+	 * never expires.
+	 *
+	 * @return True if the request has expired.
+	 * @see #expireAfter(long)
+	 */
+	boolean isExpired() {
+		return expiresAt > 0 && !started && clock.elapsedRealtime() > expiresAt;
+	}
+
 	/**
 	 * Enqueues the request for asynchronous execution.
 	 */
@@ -26,6 +26,22 @@ abstract class RequestHandler implements CallbackHandler {
 	 */
 	abstract void cancelCurrent();
 
+	/**
+	 * Hands over a single-flight read which is being cancelled to the most urgent request which
+	 * has joined it, if any, so that the read is still executed for the joined requests.
+	 *
+	 * @param request the read request being cancelled.
+	 */
+	abstract void handOver(@NonNull final ReadRequest request);
+
+	/**
+	 * Method called when a single-flight read may no longer be joined, as it has received
+	 * the value, finished or was cancelled.
+	 *
+	 * @param request the read request.
+	 */
+	abstract void onReadClosed(@NonNull final ReadRequest request);
+
 	/**
 	 * Method called when the request timed out.
 	 *
@@ -32,6 +32,7 @@ import androidx.annotation.Nullable;
 import java.util.Deque;
 import java.util.LinkedList;
 
+import no.nordicsemi.android.ble.annotation.RequestPriority;
 import no.nordicsemi.android.ble.callback.AfterCallback;
 import no.nordicsemi.android.ble.callback.BeforeCallback;
 import no.nordicsemi.android.ble.callback.FailCallback;
@@ -107,6 +108,20 @@ public class RequestQueue extends TimeoutableRequest {
 		return this;
 	}
 
+	@NonNull
+	@Override
+	public RequestQueue priority(@RequestPriority final int priority) {
+		super.priority(priority);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public RequestQueue expireAfter(@IntRange(from = 0) final long ttl) {
+		super.expireAfter(ttl);
+		return this;
+	}
+
 	@NonNull
 	@Override
 	public RequestQueue timeout(@IntRange(from = 0) final long timeout) {
@@ -132,7 +147,7 @@ public class RequestQueue extends TimeoutableRequest {
 			request.internalFail(this::notifyFail);
 			requests.add(request);
 			// Mark
-			request.enqueued = true;
+			request.notifyEnqueued();
 			return this;
 		} else {
 			throw new IllegalArgumentException("Operation does not extend Request");
@@ -0,0 +1,78 @@
+package no.nordicsemi.android.ble;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+
+/**
+ * The resume token describes how much of the data of a split {@link WriteRequest} has been
+ * sent. When the request fails, e.g. because the device has disconnected, a new request with
+ * the same data may continue from that point using {@link WriteRequest#resumeFrom(ResumeToken)}.
+ * <p>
+ * Packets are counted as sent when they are confirmed by the Bluetooth stack. For
+ * {@link android.bluetooth.BluetoothGattCharacteristic#WRITE_TYPE_DEFAULT} this means the
+ * device has acknowledged them. Packets written without response may have been lost
+ * in the controller when the link was dropped, so the device should report the offset
+ * it has received before resuming.
+ *
+ * @see WriteRequest#getResumeToken()
+ */
+@SuppressWarnings("unused")
+public final class ResumeToken {
+	private final long length;
+	private final long offset;
+	private final int packets;
+
+	/**
+	 * Creates a resume token.
+	 *
+	 * @param length  the total length of the data, or -1 if unknown.
+	 * @param offset  the number of bytes of the data already sent.
+	 * @param packets the number of packets already sent.
+	 */
+	public ResumeToken(@IntRange(from = -1) final long length,
+					   @IntRange(from = 0) final long offset,
+					   @IntRange(from = 0) final int packets) {
+		this.length = length;
+		this.offset = offset;
+		this.packets = packets;
+	}
+
+	/**
+	 * Returns the total length of the data, or -1 if the length of the
+	 * {@link no.nordicsemi.android.ble.data.DataSource} was unknown.
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Returns the offset of the first byte of the data which wasn't sent.
+	 * <p>
+	 * For splitters that don't implement
+	 * {@link no.nordicsemi.android.ble.data.OffsetDataSplitter} this is the total length
+	 * of the packets sent, which may include headers added by the splitter.
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Returns the number of packets sent.
+	 */
+	public int getPacketCount() {
+		return packets;
+	}
+
+	/**
+	 * Returns whether all data were sent.
+	 */
+	public boolean isComplete() {
+		return length >= 0 && offset >= length;
+	}
+
+	@NonNull
+	@Override
+	public String toString() {
+		return "ResumeToken{offset=" + offset + ", length=" + length + ", packets=" + packets + "}";
+	}
+}
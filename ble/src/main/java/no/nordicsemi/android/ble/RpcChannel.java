@@ -0,0 +1,307 @@
+package no.nordicsemi.android.ble;
+
+import android.bluetooth.BluetoothDevice;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import no.nordicsemi.android.ble.callback.DataReceivedCallback;
+import no.nordicsemi.android.ble.callback.FailCallback;
+import no.nordicsemi.android.ble.data.Data;
+
+/**
+ * A channel for remote procedure calls over a pair of characteristics: commands are written
+ * to one characteristic and responses are received as notifications from the other one.
+ * <p>
+ * Each command is prefixed with a 1-byte correlation ID, which the remote device has to
+ * repeat as the first byte of the response. This allows several calls to be in flight at
+ * the same time, so the round trip time is not added to every call, and the request queue is
+ * not blocked while waiting for a response. Calls above {@link #maxCallsInFlight(int)} wait
+ * until a previous call completes. Each call has its own timeout.
+ * <p>
+ * IDs are assigned consecutively, so a late response to a call that has timed out
+ * will not be taken as a response to one of the next 255 calls.
+ *
+ * @see BleManager#openRpcChannel(android.bluetooth.BluetoothGattCharacteristic, android.bluetooth.BluetoothGattCharacteristic, int)
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class RpcChannel {
+	/** The default number of calls waiting for a response at the same time. */
+	public static final int DEFAULT_MAX_CALLS_IN_FLIGHT = 4;
+	/** The maximum number of calls in flight, limited by the 1-byte correlation ID. */
+	public static final int MAX_CALLS_IN_FLIGHT = 128;
+	/** The default timeout of a call, in milliseconds. */
+	public static final long DEFAULT_TIMEOUT = 5000;
+
+	/**
+	 * The channel used to send commands.
+	 */
+	interface Transport {
+		/**
+		 * Sends the command.
+		 *
+		 * @param packet   the command, including the correlation ID.
+		 * @param callback the callback called when sending the command failed.
+		 */
+		void send(@NonNull final byte[] packet, @NonNull final FailCallback callback);
+
+		/**
+		 * Returns the device, or null if not connected.
+		 */
+		@Nullable
+		BluetoothDevice getDevice();
+	}
+
+	/**
+	 * A single remote procedure call. The call is sent when {@link #enqueue()} is called.
+	 */
+	public final class Call {
+		@NonNull
+		private final byte[] command;
+		private DataReceivedCallback responseCallback;
+		private FailCallback failCallback;
+		private long timeout;
+		private int id = -1;
+		private boolean enqueued;
+		/** The task failing the call when no response was received in time. */
+		@Nullable
+		private Runnable timeoutTask;
+
+		private Call(@NonNull final byte[] command) {
+			this.command = command;
+			this.timeout = defaultTimeout;
+		}
+
+		/**
+		 * Sets the callback called with the response, without the correlation ID.
+		 *
+		 * @param callback the callback.
+		 * @return The call.
+		 */
+		@NonNull
+		public Call with(@NonNull final DataReceivedCallback callback) {
+			this.responseCallback = callback;
+			return this;
+		}
+
+		/**
+		 * Sets the callback called when the command could not be sent, no response was
+		 * received in time ({@link FailCallback#REASON_TIMEOUT}), or the device has
+		 * disconnected ({@link FailCallback#REASON_DEVICE_DISCONNECTED}).
+		 *
+		 * @param callback the callback.
+		 * @return The call.
+		 */
+		@NonNull
+		public Call fail(@NonNull final FailCallback callback) {
+			this.failCallback = callback;
+			return this;
+		}
+
+		/**
+		 * Sets the time in which the response must be received, counted from the moment
+		 * the command is sent.
+		 *
+		 * @param timeout the timeout, in milliseconds, or 0 for no timeout.
+		 * @return The call.
+		 */
+		@NonNull
+		public Call timeout(@IntRange(from = 0) final long timeout) {
+			this.timeout = timeout;
+			return this;
+		}
+
+		/**
+		 * Sends the call, or queues it if too many calls are in flight.
+		 *
+		 * @throws IllegalStateException if the call was already enqueued.
+		 */
+		public void enqueue() {
+			synchronized (RpcChannel.this) {
+				if (enqueued)
+					throw new IllegalStateException("Call already enqueued");
+				enqueued = true;
+				if (closed) {
+					notifyFailed(this, FailCallback.REASON_DEVICE_DISCONNECTED);
+					return;
+				}
+				pending.add(this);
+				flush();
+			}
+		}
+	}
+
+	@NonNull
+	private final Transport transport;
+	@NonNull
+	private final CallbackHandler handler;
+	/** Calls in flight, by correlation ID. */
+	private final Call[] inFlight = new Call[256];
+	private final Deque<Call> pending = new ArrayDeque<>();
+	private int callsInFlight;
+	private int maxCallsInFlight = DEFAULT_MAX_CALLS_IN_FLIGHT;
+	private long defaultTimeout = DEFAULT_TIMEOUT;
+	private int nextId;
+	private boolean closed;
+
+	RpcChannel(@NonNull final Transport transport, @NonNull final CallbackHandler handler) {
+		this.transport = transport;
+		this.handler = handler;
+	}
+
+	/**
+	 * Sets the maximum number of calls waiting for a response at the same time.
+	 *
+	 * @param max the number of calls, from 1 to {@link #MAX_CALLS_IN_FLIGHT},
+	 *            by default {@link #DEFAULT_MAX_CALLS_IN_FLIGHT}.
+	 * @return The channel.
+	 */
+	@NonNull
+	public synchronized RpcChannel maxCallsInFlight(@IntRange(from = 1, to = MAX_CALLS_IN_FLIGHT) final int max) {
+		if (max < 1 || max > MAX_CALLS_IN_FLIGHT)
+			throw new IllegalArgumentException("Max calls in flight must be between 1 and " + MAX_CALLS_IN_FLIGHT);
+		this.maxCallsInFlight = max;
+		flush();
+		return this;
+	}
+
+	/**
+	 * Sets the timeout of calls created afterwards.
+	 *
+	 * @param timeout the timeout, in milliseconds, or 0 for no timeout.
+	 * @return The channel.
+	 */
+	@NonNull
+	public synchronized RpcChannel timeout(@IntRange(from = 0) final long timeout) {
+		this.defaultTimeout = timeout;
+		return this;
+	}
+
+	/**
+	 * Creates a call with the given command. Call {@link Call#enqueue()} to send it.
+	 *
+	 * @param command the command, without the correlation ID.
+	 * @return The call.
+	 */
+	@NonNull
+	public synchronized Call call(@NonNull final byte[] command) {
+		return new Call(command);
+	}
+
+	/**
+	 * Returns the number of calls waiting for a response.
+	 */
+	public synchronized int getCallsInFlight() {
+		return callsInFlight;
+	}
+
+	/**
+	 * Closes the channel. All calls that have not completed fail with
+	 * {@link FailCallback#REASON_DEVICE_DISCONNECTED}.
+	 */
+	public synchronized void close() {
+		if (closed)
+			return;
+		closed = true;
+		for (int id = 0; id < inFlight.length; ++id) {
+			final Call call = complete(id);
+			if (call != null)
+				notifyFailed(call, FailCallback.REASON_DEVICE_DISCONNECTED);
+		}
+		Call call;
+		while ((call = pending.poll()) != null)
+			notifyFailed(call, FailCallback.REASON_DEVICE_DISCONNECTED);
+	}
+
+	/**
+	 * Method called when a response was received from the remote device.
+	 *
+	 * @param device the device.
+	 * @param data   the response, starting with the correlation ID.
+	 */
+	void onResponse(@NonNull final BluetoothDevice device, @NonNull final Data data) {
+		final byte[] value = data.getValue();
+		if (value == null || value.length == 0)
+			return;
+		final Call call;
+		synchronized (this) {
+			call = complete(value[0] & 0xFF);
+			if (call == null)
+				return;
+			flush();
+		}
+		final DataReceivedCallback callback = call.responseCallback;
+		if (callback != null) {
+			final byte[] response = new byte[value.length - 1];
+			System.arraycopy(value, 1, response, 0, response.length);
+			handler.post(() -> callback.onDataReceived(device, new Data(response)));
+		}
+	}
+
+	private void flush() {
+		while (!closed && callsInFlight < maxCallsInFlight && !pending.isEmpty()) {
+			final Call call = pending.poll();
+			final int id = nextId();
+			call.id = id;
+			inFlight[id] = call;
+			callsInFlight++;
+
+			final byte[] packet = new byte[call.command.length + 1];
+			packet[0] = (byte) id;
+			System.arraycopy(call.command, 0, packet, 1, call.command.length);
+			transport.send(packet, (device, status) -> onFailed(call, status));
+			if (call.timeout > 0) {
+				call.timeoutTask = () -> onFailed(call, FailCallback.REASON_TIMEOUT);
+				handler.postDelayed(call.timeoutTask, call.timeout);
+			}
+		}
+	}
+
+	private int nextId() {
+		while (inFlight[nextId] != null)
+			nextId = (nextId + 1) & 0xFF;
+		final int id = nextId;
+		nextId = (nextId + 1) & 0xFF;
+		return id;
+	}
+
+	/**
+	 * Removes the call with the given ID from calls in flight and cancels its timeout.
+	 *
+	 * @return The call, or null if no such call was in flight.
+	 */
+	@Nullable
+	private Call complete(final int id) {
+		final Call call = inFlight[id];
+		if (call == null)
+			return null;
+		inFlight[id] = null;
+		callsInFlight--;
+		if (call.timeoutTask != null) {
+			handler.removeCallbacks(call.timeoutTask);
+			call.timeoutTask = null;
+		}
+		return call;
+	}
+
+	private synchronized void onFailed(@NonNull final Call call, final int status) {
+		// The call may have already completed; the ID may even be used by another call.
+		if (call.id < 0 || inFlight[call.id] != call)
+			return;
+		complete(call.id);
+		notifyFailed(call, status);
+		flush();
+	}
+
+	private void notifyFailed(@NonNull final Call call, final int status) {
+		final FailCallback callback = call.failCallback;
+		if (callback != null) {
+			final BluetoothDevice device = transport.getDevice();
+			handler.post(() -> callback.onRequestFailed(device, status));
+		}
+	}
+}
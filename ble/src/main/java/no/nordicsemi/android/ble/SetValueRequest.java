@@ -7,6 +7,7 @@ import android.os.Handler;
 import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import no.nordicsemi.android.ble.annotation.RequestPriority;
 import no.nordicsemi.android.ble.callback.AfterCallback;
 import no.nordicsemi.android.ble.callback.BeforeCallback;
 import no.nordicsemi.android.ble.callback.FailCallback;
@@ -81,6 +82,20 @@ public final class SetValueRequest extends SimpleRequest {
 		return this;
 	}
 
+	@NonNull
+	@Override
+	public SetValueRequest priority(@RequestPriority final int priority) {
+		super.priority(priority);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public SetValueRequest expireAfter(@IntRange(from = 0) final long ttl) {
+		super.expireAfter(ttl);
+		return this;
+	}
+
 	/**
 	 * Sets whether Long Read procedure is supported by the remote device on the given characteristic
 	 * or descriptor. If set to false, the given data will be truncated to match MTU.
@@ -0,0 +1,458 @@
+package no.nordicsemi.android.ble;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import no.nordicsemi.android.ble.annotation.QueueOverflowPolicy;
+import no.nordicsemi.android.ble.observer.QueueObserver;
+
+/**
+ * The task queue keeps enqueued requests in separate lanes, one for each
+ * {@link no.nordicsemi.android.ble.annotation.RequestPriority priority}.
+ * <p>
+ * {@link #poll()} returns the first request from the highest non-empty lane. To prevent
+ * starvation, a non-empty lane which was skipped {@link #MAX_SKIPPED} times in a row
+ * is served before lanes with higher priority.
+ * <p>
+ * Requests may be {@link #add(Request, boolean) added} from any thread without locking. They are
+ * kept in a lock-free inbox and moved to the lanes by the consumer, which is the thread executing
+ * requests. All other methods are meant to be called by the consumer and are synchronized.
+ * <p>
+ * The queue may be bounded, either in total, or for requests targeting a given characteristic.
+ * Adding a request to a bounded queue requires locking.
+ */
+final class TaskQueue {
+	/**
+	 * Number of times a non-empty lane may be skipped in favor of lanes with higher priority
+	 * before one of its requests is executed.
+	 */
+	static final int MAX_SKIPPED = 8;
+
+	private static final class Limit {
+		private final int capacity;
+		@QueueOverflowPolicy
+		private final int policy;
+
+		private Limit(final int capacity, @QueueOverflowPolicy final int policy) {
+			this.capacity = capacity;
+			this.policy = policy;
+		}
+	}
+
+	private final Queue<Request> inbox = new ConcurrentLinkedQueue<>();
+	private final Deque<Request>[] lanes;
+	private final int[] skipped;
+	/** Number of requests in the inbox and all lanes. */
+	private final AtomicInteger depth = new AtomicInteger();
+	/** The total capacity, or null if the queue is unbounded. */
+	@Nullable
+	private volatile Limit limit;
+	/** Capacities for requests targeting given characteristics. Replaced on each change. */
+	@NonNull
+	private volatile Map<BluetoothGattCharacteristic, Limit> limits = Collections.emptyMap();
+	@Nullable
+	private volatile QueueObserver observer;
+	/** Number of threads waiting for space in the queue. */
+	private int waiting;
+
+	@SuppressWarnings("unchecked")
+	TaskQueue() {
+		final int count = Request.PRIORITY_BACKGROUND + 1;
+		lanes = new Deque[count];
+		for (int i = 0; i < count; i++) {
+			lanes[i] = new ArrayDeque<>();
+		}
+		skipped = new int[count];
+	}
+
+	/**
+	 * Sets the maximum number of requests in the queue and the policy applied when a request
+	 * is added to a full queue.
+	 *
+	 * @param capacity the capacity, or 0 for an unbounded queue.
+	 * @param policy   the overflow policy.
+	 */
+	synchronized void setCapacity(@IntRange(from = 0) final int capacity,
+								  @QueueOverflowPolicy final int policy) {
+		limit = capacity > 0 ? new Limit(capacity, policy) : null;
+		notifyAll();
+	}
+
+	/**
+	 * Sets the maximum number of requests targeting the given characteristic in the queue,
+	 * and the policy applied when such request is added while the limit is reached.
+	 * <p>
+	 * Requests added without a limit don't take the lock. Those which are being added by
+	 * other threads while the limit is set are not checked and may exceed it.
+	 *
+	 * @param characteristic the characteristic.
+	 * @param capacity       the capacity, or 0 to remove the limit.
+	 * @param policy         the overflow policy.
+	 */
+	synchronized void setCapacity(@NonNull final BluetoothGattCharacteristic characteristic,
+								  @IntRange(from = 0) final int capacity,
+								  @QueueOverflowPolicy final int policy) {
+		final Map<BluetoothGattCharacteristic, Limit> limits = new HashMap<>(this.limits);
+		if (capacity > 0)
+			limits.put(characteristic, new Limit(capacity, policy));
+		else
+			limits.remove(characteristic);
+		this.limits = limits.isEmpty() ? Collections.emptyMap() : limits;
+		notifyAll();
+	}
+
+	void setObserver(@Nullable final QueueObserver observer) {
+		this.observer = observer;
+	}
+
+	/**
+	 * Adds the request without blocking.
+	 *
+	 * @see #add(Request, boolean)
+	 */
+	@NonNull
+	List<Request> add(@NonNull final Request request) {
+		return add(request, false);
+	}
+
+	/**
+	 * Adds the request at the end of the lane matching its priority.
+	 * <p>
+	 * If the queue is unbounded, this method does not block and may be called from any thread.
+	 * Otherwise, the overflow policy is applied when the queue is full.
+	 *
+	 * @param request  the request to be added.
+	 * @param canBlock whether the calling thread may be blocked until there is space in the queue.
+	 *                 If false, {@link BleManager#QUEUE_OVERFLOW_BLOCK} works like
+	 *                 {@link BleManager#QUEUE_OVERFLOW_DROP_NEWEST}.
+	 * @return The requests removed because of an overflow. This may be the given request, or
+	 * older ones. Those should be failed by the caller.
+	 * @throws IllegalStateException if the queue is full and the policy is
+	 *                               {@link BleManager#QUEUE_OVERFLOW_FAIL}.
+	 */
+	@NonNull
+	List<Request> add(@NonNull final Request request, final boolean canBlock) {
+		final Limit characteristicLimit = request.characteristic != null ?
+				limits.get(request.characteristic) : null;
+		if (limit == null && characteristicLimit == null) {
+			depth.incrementAndGet();
+			inbox.offer(request);
+			notifyObserver();
+			return Collections.emptyList();
+		}
+		final List<Request> removed;
+		synchronized (this) {
+			removed = addBounded(request, canBlock);
+		}
+		notifyObserver();
+		return removed;
+	}
+
+	/**
+	 * Replaces a queued coalescing write to the same attribute, and with the same priority,
+	 * with the given request, which takes its position in the queue.
+	 *
+	 * @param request the new request.
+	 * @return The superseded request, which should be failed by the caller, or null if no request
+	 * was replaced. In that case the given request was not added.
+	 * @see WriteRequest#coalesce()
+	 */
+	@Nullable
+	synchronized Request replace(@NonNull final WriteRequest request) {
+		transfer();
+		final Deque<Request> lane = lanes[request.priority];
+		Request superseded = null;
+		for (final Request r : lane) {
+			if (request.supersedes(r)) {
+				superseded = r;
+				break;
+			}
+		}
+		if (superseded == null)
+			return null;
+		// ArrayDeque doesn't support replacing an element, so the lane is rotated once.
+		for (int i = lane.size(); i > 0; i--) {
+			final Request r = lane.pollFirst();
+			lane.addLast(r == superseded ? request : r);
+		}
+		return superseded;
+	}
+
+	/**
+	 * Puts the given request in place of a queued one, which was cancelled. If both requests
+	 * have the same priority, the request takes the position of the cancelled one. Otherwise,
+	 * it is added at the end of the lane matching its priority.
+	 * <p>
+	 * The capacity is not checked, as the cancelled request is removed.
+	 *
+	 * @param cancelled the cancelled request.
+	 * @param request   the request to be added instead.
+	 */
+	void replace(@NonNull final Request cancelled, @NonNull final Request request) {
+		synchronized (this) {
+			transfer();
+			final Deque<Request> lane = lanes[cancelled.priority];
+			if (cancelled.priority == request.priority && lane.contains(cancelled)) {
+				for (int i = lane.size(); i > 0; i--) {
+					final Request r = lane.pollFirst();
+					lane.addLast(r == cancelled ? request : r);
+				}
+				return;
+			}
+			if (lane.remove(cancelled))
+				depth.decrementAndGet();
+			depth.incrementAndGet();
+			lanes[request.priority].addLast(request);
+		}
+		notifyObserver();
+	}
+
+	/**
+	 * Adds the request at the front of the lane matching its priority. This is used to
+	 * continue execution of requests which require multiple operations, for example
+	 * a split {@link WriteRequest}.
+	 *
+	 * @param request the request to be added.
+	 */
+	synchronized void addFirst(@NonNull final Request request) {
+		transfer();
+		depth.incrementAndGet();
+		lanes[request.priority].addFirst(request);
+	}
+
+	/**
+	 * Removes and returns the next request to be executed.
+	 * <p>
+	 * Requests which have finished before being started, that is were cancelled while
+	 * enqueued, are removed and skipped.
+	 *
+	 * @return The next request, or null if the queue is empty.
+	 */
+	@Nullable
+	Request poll() {
+		final Request request;
+		final boolean changed;
+		synchronized (this) {
+			final int before = depth.get();
+			request = pollLocked();
+			changed = depth.get() != before;
+		}
+		if (changed)
+			notifyObserver();
+		return request;
+	}
+
+	@Nullable
+	private Request pollLocked() {
+		transfer();
+		while (true) {
+			int lane = -1;
+			for (int i = 0; i < lanes.length; i++) {
+				if (lanes[i].isEmpty())
+					continue;
+				if (lane == -1)
+					lane = i;
+				if (skipped[i] >= MAX_SKIPPED) {
+					lane = i;
+					break;
+				}
+			}
+			if (lane == -1)
+				return null;
+
+			final Request request = lanes[lane].pollFirst();
+			removed();
+			if (request.finished)
+				continue;
+
+			skipped[lane] = 0;
+			for (int i = lane + 1; i < lanes.length; i++) {
+				if (!lanes[i].isEmpty())
+					skipped[i]++;
+			}
+			return request;
+		}
+	}
+
+	/**
+	 * Removes all requests from the queue.
+	 *
+	 * @return The removed requests, sorted by priority.
+	 */
+	@NonNull
+	List<Request> drain() {
+		final List<Request> requests = new ArrayList<>();
+		synchronized (this) {
+			transfer();
+			for (int i = 0; i < lanes.length; i++) {
+				requests.addAll(lanes[i]);
+				lanes[i].clear();
+				skipped[i] = 0;
+			}
+			depth.addAndGet(-requests.size());
+			if (waiting > 0)
+				notifyAll();
+		}
+		if (!requests.isEmpty())
+			notifyObserver();
+		return requests;
+	}
+
+	/**
+	 * Returns the number of requests in the queue, including those added
+	 * but not yet moved to the lanes.
+	 */
+	@IntRange(from = 0)
+	int size() {
+		return depth.get();
+	}
+
+	boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Adds the request to a bounded queue. Must be called with the lock held.
+	 */
+	@NonNull
+	private List<Request> addBounded(@NonNull final Request request, final boolean canBlock) {
+		transfer();
+		List<Request> removed = Collections.emptyList();
+		while (true) {
+			// The limits may have changed while waiting.
+			final Limit queueLimit = limit;
+			final Limit characteristicLimit = request.characteristic != null ?
+					limits.get(request.characteristic) : null;
+			final boolean characteristicFull = characteristicLimit != null &&
+					count(request.characteristic) >= characteristicLimit.capacity;
+			final boolean queueFull = queueLimit != null && depth.get() >= queueLimit.capacity;
+			if (!characteristicFull && !queueFull)
+				break;
+
+			//noinspection DataFlowIssue
+			final int policy = characteristicFull ? characteristicLimit.policy : queueLimit.policy;
+			switch (policy) {
+				case BleManager.QUEUE_OVERFLOW_FAIL:
+					throw new IllegalStateException("Queue full");
+				case BleManager.QUEUE_OVERFLOW_BLOCK:
+					if (canBlock) {
+						waiting++;
+						try {
+							wait();
+							transfer();
+							continue;
+						} catch (final InterruptedException e) {
+							Thread.currentThread().interrupt();
+						} finally {
+							waiting--;
+						}
+					}
+					return withRemoved(removed, request);
+				case BleManager.QUEUE_OVERFLOW_DROP_OLDEST: {
+					final Request oldest = removeOldest(request.priority,
+							characteristicFull ? request.characteristic : null);
+					if (oldest == null)
+						return withRemoved(removed, request);
+					removed = withRemoved(removed, oldest);
+					continue;
+				}
+				case BleManager.QUEUE_OVERFLOW_DROP_NEWEST:
+				default:
+					return withRemoved(removed, request);
+			}
+		}
+		depth.incrementAndGet();
+		lanes[request.priority].addLast(request);
+		return removed;
+	}
+
+	/**
+	 * Returns the number of queued requests targeting the given characteristic, including
+	 * those added to the inbox by other threads after the last transfer.
+	 */
+	private int count(@NonNull final BluetoothGattCharacteristic characteristic) {
+		int count = 0;
+		for (final Request request : inbox) {
+			if (request.characteristic == characteristic)
+				count++;
+		}
+		for (final Deque<Request> lane : lanes) {
+			for (final Request request : lane) {
+				if (request.characteristic == characteristic)
+					count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Removes the oldest request with the given priority, optionally targeting the given
+	 * characteristic. Requests which have already started, like split writes, are not removed.
+	 *
+	 * @return The removed request, or null if there was none.
+	 */
+	@Nullable
+	private Request removeOldest(final int priority,
+								 @Nullable final BluetoothGattCharacteristic characteristic) {
+		final Iterator<Request> iterator = lanes[priority].iterator();
+		while (iterator.hasNext()) {
+			final Request request = iterator.next();
+			if (!request.started &&
+					(characteristic == null || request.characteristic == characteristic)) {
+				iterator.remove();
+				depth.decrementAndGet();
+				return request;
+			}
+		}
+		return null;
+	}
+
+	@NonNull
+	private static List<Request> withRemoved(@NonNull final List<Request> removed,
+											 @NonNull final Request request) {
+		final List<Request> list = removed.isEmpty() ? new ArrayList<>(1) : removed;
+		list.add(request);
+		return list;
+	}
+
+	/**
+	 * Called with the lock held when a request was taken from the lanes.
+	 */
+	private void removed() {
+		depth.decrementAndGet();
+		if (waiting > 0)
+			notifyAll();
+	}
+
+	private void notifyObserver() {
+		final QueueObserver observer = this.observer;
+		if (observer != null)
+			observer.onQueueDepthChanged(depth.get());
+	}
+
+	/**
+	 * Moves requests added since the last call from the inbox to their lanes,
+	 * keeping the order in which they were added.
+	 */
+	private void transfer() {
+		Request request;
+		while ((request = inbox.poll()) != null) {
+			lanes[request.priority].addLast(request);
+		}
+	}
+}
@@ -26,11 +26,14 @@ import android.bluetooth.BluetoothDevice;
 import android.os.Handler;
 import android.util.Log;
 
+import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import no.nordicsemi.android.ble.callback.ClosedCallback;
+import no.nordicsemi.android.ble.callback.DataBatchReceivedCallback;
 import no.nordicsemi.android.ble.callback.DataReceivedCallback;
 import no.nordicsemi.android.ble.callback.ReadProgressCallback;
+import no.nordicsemi.android.ble.callback.TransferProgressCallback;
 import no.nordicsemi.android.ble.data.Data;
 import no.nordicsemi.android.ble.data.DataFilter;
 import no.nordicsemi.android.ble.data.DataMerger;
@@ -43,16 +46,22 @@ public class ValueChangedCallback {
 
 	private ClosedCallback closedCallback;
 	private ReadProgressCallback progressCallback;
+	private ProgressAggregator progress;
+	private NotificationRing ring;
+	private NotificationBatcher batcher;
 	private DataReceivedCallback valueCallback;
 	private DataMerger dataMerger;
 	private DataStream buffer;
 	private DataFilter filter;
 	private PacketFilter packetFilter;
 	private CallbackHandler handler;
+	/** The handler of the manager, used to delay batches also when the handler was changed. */
+	private final CallbackHandler timer;
 	private int count = 0;
 
 	ValueChangedCallback(final CallbackHandler handler) {
 		this.handler = handler;
+		this.timer = handler;
 	}
 
 	@NonNull
@@ -89,6 +98,51 @@ public class ValueChangedCallback {
 	@NonNull
 	public ValueChangedCallback with(@NonNull final DataReceivedCallback callback) {
 		this.valueCallback = callback;
+		this.batcher = null;
+		return this;
+	}
+
+	/**
+	 * Sets the asynchronous data callback that will be called with all notifications or
+	 * indications received within 20 ms, or 64 of them, whichever comes first.
+	 * This replaces the callback set using {@link #with(DataReceivedCallback)}.
+	 *
+	 * @param callback the data callback.
+	 * @return The request.
+	 * @see #batch(DataBatchReceivedCallback, long, int)
+	 */
+	@NonNull
+	public ValueChangedCallback batch(@NonNull final DataBatchReceivedCallback callback) {
+		return batch(callback, NotificationBatcher.DEFAULT_WINDOW, NotificationBatcher.DEFAULT_MAX_PACKETS);
+	}
+
+	/**
+	 * Sets the asynchronous data callback that will be called with batches of received
+	 * notifications or indications, instead of being called for each packet. This reduces
+	 * the number of callbacks posted to the handler for high rate notifications.
+	 * <p>
+	 * A batch is delivered when the window has elapsed since its first packet was received,
+	 * or when it reaches the given number of packets, so the latency added by batching
+	 * is bounded. With a window of 0 ms, all packets received until the handler runs
+	 * the callback are delivered.
+	 * <p>
+	 * This replaces the callback set using {@link #with(DataReceivedCallback)}.
+	 *
+	 * @param callback   the data callback.
+	 * @param window     the maximum time a packet may wait for others, in milliseconds.
+	 * @param maxPackets the number of packets after which the batch is delivered without
+	 *                   waiting for the window. Packets received before the handler runs
+	 *                   the callback are added to the same batch.
+	 * @return The request.
+	 */
+	@NonNull
+	public ValueChangedCallback batch(@NonNull final DataBatchReceivedCallback callback,
+									  @IntRange(from = 0) final long window,
+									  @IntRange(from = 1) final int maxPackets) {
+		if (maxPackets < 1)
+			throw new IllegalArgumentException("Max packets must be positive");
+		this.batcher = new NotificationBatcher(callback, window, maxPackets);
+		this.valueCallback = null;
 		return this;
 	}
 
@@ -151,6 +205,57 @@ public class ValueChangedCallback {
 		return this;
 	}
 
+	/**
+	 * Sets a callback reporting the progress of merging a message at most every 100 ms,
+	 * and when the message is complete.
+	 *
+	 * @param callback the progress callback.
+	 * @return The request.
+	 */
+	@NonNull
+	public ValueChangedCallback progress(@NonNull final TransferProgressCallback callback) {
+		return progress(callback, ProgressAggregator.DEFAULT_INTERVAL, 0);
+	}
+
+	/**
+	 * Sets a callback reporting the progress of merging a message when the given time has
+	 * elapsed, or the given number of bytes were received since the last report, whichever
+	 * comes first, and when the message is complete.
+	 *
+	 * @param callback the progress callback.
+	 * @param interval the minimum time between reports, in milliseconds, or 0 to disable.
+	 * @param byteStep the minimum number of bytes between reports, or 0 to disable.
+	 * @return The request.
+	 */
+	@NonNull
+	public ValueChangedCallback progress(@NonNull final TransferProgressCallback callback,
+										 @IntRange(from = 0) final long interval,
+										 @IntRange(from = 0) final int byteStep) {
+		this.progress = new ProgressAggregator(callback, interval, byteStep);
+		return this;
+	}
+
+	/**
+	 * Enables delivery of packets through a preallocated ring buffer. Received packets are
+	 * copied into the buffer and all packets received until the callback thread is ready are
+	 * delivered at once, using the same {@link Data} instance, so that no memory is allocated
+	 * per packet. This is useful for high rate notifications with fixed length.
+	 * <p>
+	 * The {@link Data} given to the callback is valid only until the callback returns.
+	 * It must not be modified, nor kept; copy the value if needed. Packets received when
+	 * the buffer is full are dropped.
+	 * <p>
+	 * The ring buffer is not used when a {@link DataMerger} or a batch callback is set.
+	 *
+	 * @param capacity the number of packets in the buffer, rounded up to a power of 2.
+	 * @return The request.
+	 */
+	@NonNull
+	public ValueChangedCallback ringBuffer(@IntRange(from = 1) final int capacity) {
+		this.ring = new NotificationRing(capacity);
+		return this;
+	}
+
 	/**
 	 * Sets a callback that will be executed when the device services were invalidated (i.e. on
 	 * disconnection) or the callback has been unregistered and it can release resources.
@@ -171,13 +276,22 @@ public class ValueChangedCallback {
 	void notifyValueChanged(@NonNull final BluetoothDevice device, @Nullable final byte[] value) {
 		// Keep a reference to the value callback, as it may change during execution
 		final DataReceivedCallback valueCallback = this.valueCallback;
+		final NotificationBatcher batcher = this.batcher;
 
 		// With no value callback there is no need for any merging
-		if (valueCallback == null) {
+		if (valueCallback == null && batcher == null) {
 			return;
 		}
 
-		if (dataMerger == null && (packetFilter == null || packetFilter.filter(value))) {
+		final NotificationRing ring = this.ring;
+		if (ring != null && valueCallback != null && dataMerger == null) {
+			if (packetFilter == null || packetFilter.filter(value))
+				ring.offer(handler, device, value, valueCallback);
+		} else if (dataMerger == null && (packetFilter == null || packetFilter.filter(value))) {
+			if (batcher != null) {
+				batcher.offer(handler, timer, device, value);
+				return;
+			}
 			final Data data = new Data(value);
 			handler.post(() -> {
 				try {
@@ -187,21 +301,27 @@ public class ValueChangedCallback {
 				}
 			});
 		} else {
-			final int currentCount = count;
-			handler.post(() -> {
-				if (progressCallback != null) {
+			final ReadProgressCallback progressCallback = this.progressCallback;
+			if (progressCallback != null) {
+				final int currentCount = count;
+				handler.post(() -> {
 					try {
 						progressCallback.onPacketReceived(device, value, currentCount);
 					} catch (final Throwable t) {
 						Log.e(TAG, "Exception in Progress callback", t);
 					}
-				}
-			});
+				});
+			}
 			if (buffer == null)
 				buffer = new DataStream();
-			if (dataMerger.merge(buffer, value, count++)) {
+			boolean last = dataMerger.merge(buffer, value, count++);
+			if (progress != null)
+				progress.onPacket(handler, device, value != null ? value.length : 0, last);
+			while (last) {
 				final byte[] merged = buffer.toByteArray();
-				if (packetFilter == null || packetFilter.filter(merged)) {
+				if (batcher != null && (packetFilter == null || packetFilter.filter(merged))) {
+					batcher.offer(handler, timer, device, merged);
+				} else if (packetFilter == null || packetFilter.filter(merged)) {
 					final Data data = new Data(merged);
 					handler.post(() -> {
 						try {
@@ -213,6 +333,12 @@ public class ValueChangedCallback {
 				}
 				buffer = null;
 				count = 0;
+
+				// The packet may contain more than one message.
+				if (!dataMerger.hasPendingData())
+					break;
+				buffer = new DataStream();
+				last = dataMerger.merge(buffer, null, count++);
 			} // else
 			// wait for more packets to be merged
 		}
@@ -234,6 +360,9 @@ public class ValueChangedCallback {
 		valueCallback = null;
 		dataMerger = null;
 		progressCallback = null;
+		progress = null;
+		ring = null;
+		batcher = null;
 		filter = null;
 		packetFilter = null;
 		buffer = null;
@@ -10,12 +10,14 @@ import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import no.nordicsemi.android.ble.annotation.RequestPriority;
 import no.nordicsemi.android.ble.callback.AfterCallback;
 import no.nordicsemi.android.ble.callback.BeforeCallback;
 import no.nordicsemi.android.ble.callback.DataSentCallback;
 import no.nordicsemi.android.ble.callback.FailCallback;
 import no.nordicsemi.android.ble.callback.InvalidRequestCallback;
 import no.nordicsemi.android.ble.callback.SuccessCallback;
+import no.nordicsemi.android.ble.callback.TransferProgressCallback;
 import no.nordicsemi.android.ble.callback.WriteProgressCallback;
 import no.nordicsemi.android.ble.data.Data;
 import no.nordicsemi.android.ble.data.DataSplitter;
@@ -26,6 +28,7 @@ public final class WaitForReadRequest extends AwaitingRequest<DataSentCallback>
 	private static final DataSplitter MTU_SPLITTER = new DefaultMtuSplitter();
 
 	private WriteProgressCallback progressCallback;
+	private ProgressAggregator progress;
 	private DataSplitter dataSplitter;
 	private byte[] data;
 	private byte[] nextChunk;
@@ -123,6 +126,20 @@ public final class WaitForReadRequest extends AwaitingRequest<DataSentCallback>
 		return this;
 	}
 
+	@NonNull
+	@Override
+	public WaitForReadRequest priority(@RequestPriority final int priority) {
+		super.priority(priority);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public WaitForReadRequest expireAfter(@IntRange(from = 0) final long ttl) {
+		super.expireAfter(ttl);
+		return this;
+	}
+
 	@Override
 	@NonNull
 	public WaitForReadRequest with(@NonNull final DataSentCallback callback) {
@@ -197,6 +214,36 @@ public final class WaitForReadRequest extends AwaitingRequest<DataSentCallback>
 		return this;
 	}
 
+	/**
+	 * Sets a callback reporting the progress of the transfer at most every 100 ms,
+	 * and when all packets were read.
+	 *
+	 * @param callback the progress callback.
+	 * @return The request.
+	 */
+	@NonNull
+	public WaitForReadRequest progress(@NonNull final TransferProgressCallback callback) {
+		return progress(callback, ProgressAggregator.DEFAULT_INTERVAL, 0);
+	}
+
+	/**
+	 * Sets a callback reporting the progress of the transfer when the given time has elapsed,
+	 * or the given number of bytes were read since the last report, whichever comes first,
+	 * and when all packets were read.
+	 *
+	 * @param callback the progress callback.
+	 * @param interval the minimum time between reports, in milliseconds, or 0 to disable.
+	 * @param byteStep the minimum number of bytes between reports, or 0 to disable.
+	 * @return The request.
+	 */
+	@NonNull
+	public WaitForReadRequest progress(@NonNull final TransferProgressCallback callback,
+									   @IntRange(from = 0) final long interval,
+									   @IntRange(from = 0) final int byteStep) {
+		this.progress = new ProgressAggregator(callback, interval, byteStep);
+		return this;
+	}
+
 	/**
 	 * Returns the next chunk to be sent. If data splitter was not set the date returned may
 	 * be longer than MTU. Android will try to send them using Long Write sub-procedure if
@@ -243,16 +290,20 @@ public final class WaitForReadRequest extends AwaitingRequest<DataSentCallback>
 	 *               {@link android.bluetooth.BluetoothGattServerCallback#onDescriptorReadRequest(BluetoothDevice, int, int, BluetoothGattDescriptor)}
 	 */
 	void notifyPacketRead(@NonNull final BluetoothDevice device, @Nullable final byte[] data) {
-		handler.post(() -> {
-			if (progressCallback != null) {
+		final WriteProgressCallback progressCallback = this.progressCallback;
+		if (progressCallback != null) {
+			final int currentCount = count;
+			handler.post(() -> {
 				try {
-					progressCallback.onPacketSent(device, data, count);
+					progressCallback.onPacketSent(device, data, currentCount);
 				} catch (final Throwable t) {
 					Log.e(TAG, "Exception in Progress callback", t);
 				}
-			}
-		});
+			});
+		}
 		count++;
+		if (progress != null)
+			progress.onPacket(handler, device, data != null ? data.length : 0, complete);
 	}
 
 	@Override
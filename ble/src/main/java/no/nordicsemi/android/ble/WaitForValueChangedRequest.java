@@ -34,12 +34,14 @@ import androidx.annotation.Nullable;
 
 import java.util.concurrent.CancellationException;
 
+import no.nordicsemi.android.ble.annotation.RequestPriority;
 import no.nordicsemi.android.ble.callback.AfterCallback;
 import no.nordicsemi.android.ble.callback.BeforeCallback;
 import no.nordicsemi.android.ble.callback.DataReceivedCallback;
 import no.nordicsemi.android.ble.callback.FailCallback;
 import no.nordicsemi.android.ble.callback.InvalidRequestCallback;
 import no.nordicsemi.android.ble.callback.ReadProgressCallback;
+import no.nordicsemi.android.ble.callback.TransferProgressCallback;
 import no.nordicsemi.android.ble.callback.SuccessCallback;
 import no.nordicsemi.android.ble.callback.profile.ProfileReadResponse;
 import no.nordicsemi.android.ble.data.Data;
@@ -56,6 +58,7 @@ import no.nordicsemi.android.ble.exception.RequestFailedException;
 @SuppressWarnings({"unused", "WeakerAccess"})
 public final class WaitForValueChangedRequest extends AwaitingRequest<DataReceivedCallback> implements Operation {
 	private ReadProgressCallback progressCallback;
+	private ProgressAggregator progress;
 	private DataMerger dataMerger;
 	private DataStream buffer;
 	private DataFilter filter;
@@ -131,6 +134,20 @@ public final class WaitForValueChangedRequest extends AwaitingRequest<DataReceiv
 		return this;
 	}
 
+	@NonNull
+	@Override
+	public WaitForValueChangedRequest priority(@RequestPriority final int priority) {
+		super.priority(priority);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public WaitForValueChangedRequest expireAfter(@IntRange(from = 0) final long ttl) {
+		super.expireAfter(ttl);
+		return this;
+	}
+
 	@NonNull
 	@Override
 	public WaitForValueChangedRequest with(@NonNull final DataReceivedCallback callback) {
@@ -203,6 +220,36 @@ public final class WaitForValueChangedRequest extends AwaitingRequest<DataReceiv
 		return this;
 	}
 
+	/**
+	 * Sets a callback reporting the progress of merging a message at most every 100 ms,
+	 * and when the message is complete.
+	 *
+	 * @param callback the progress callback.
+	 * @return The request.
+	 */
+	@NonNull
+	public WaitForValueChangedRequest progress(@NonNull final TransferProgressCallback callback) {
+		return progress(callback, ProgressAggregator.DEFAULT_INTERVAL, 0);
+	}
+
+	/**
+	 * Sets a callback reporting the progress of merging a message when the given time has
+	 * elapsed, or the given number of bytes were received since the last report, whichever
+	 * comes first, and when the message is complete.
+	 *
+	 * @param callback the progress callback.
+	 * @param interval the minimum time between reports, in milliseconds, or 0 to disable.
+	 * @param byteStep the minimum number of bytes between reports, or 0 to disable.
+	 * @return The request.
+	 */
+	@NonNull
+	public WaitForValueChangedRequest progress(@NonNull final TransferProgressCallback callback,
+											   @IntRange(from = 0) final long interval,
+											   @IntRange(from = 0) final int byteStep) {
+		this.progress = new ProgressAggregator(callback, interval, byteStep);
+		return this;
+	}
+
 	/**
 	 * Similar to {@link #await(Class)}, but if the response class extends
 	 * {@link ProfileReadResponse} and the received response is invalid, an exception is thrown.
@@ -377,19 +424,23 @@ public final class WaitForValueChangedRequest extends AwaitingRequest<DataReceiv
 				}
 			});
 		} else {
-			final int c = count;
-			handler.post(() -> {
-				if (progressCallback != null) {
+			final ReadProgressCallback progressCallback = this.progressCallback;
+			if (progressCallback != null) {
+				final int currentCount = count;
+				handler.post(() -> {
 					try {
-						progressCallback.onPacketReceived(device, value, c);
+						progressCallback.onPacketReceived(device, value, currentCount);
 					} catch (final Throwable t) {
 						Log.e(TAG, "Exception in Progress callback", t);
 					}
-				}
-			});
+				});
+			}
 			if (buffer == null)
 				buffer = new DataStream();
-			if (dataMerger.merge(buffer, value, count++)) {
+			boolean last = dataMerger.merge(buffer, value, count++);
+			if (progress != null)
+				progress.onPacket(handler, device, value != null ? value.length : 0, last);
+			while (last) {
 				final byte[] merged = buffer.toByteArray();
 				if (packetFilter == null || packetFilter.filter(merged)) {
 					complete = true;
@@ -404,6 +455,13 @@ public final class WaitForValueChangedRequest extends AwaitingRequest<DataReceiv
 				}
 				buffer = null;
 				count = 0;
+
+				// The packet may contain more than one message. If the one merged was filtered
+				// out, try the next one.
+				if (complete || !dataMerger.hasPendingData())
+					break;
+				buffer = new DataStream();
+				last = dataMerger.merge(buffer, null, count++);
 			} // else
 			// wait for more packets to be merged
 		}
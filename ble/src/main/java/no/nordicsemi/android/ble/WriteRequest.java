@@ -33,8 +33,11 @@ import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
+import no.nordicsemi.android.ble.annotation.RequestPriority;
 import no.nordicsemi.android.ble.annotation.WriteType;
 import no.nordicsemi.android.ble.callback.AfterCallback;
 import no.nordicsemi.android.ble.callback.BeforeCallback;
@@ -42,22 +45,44 @@ import no.nordicsemi.android.ble.callback.DataSentCallback;
 import no.nordicsemi.android.ble.callback.FailCallback;
 import no.nordicsemi.android.ble.callback.InvalidRequestCallback;
 import no.nordicsemi.android.ble.callback.SuccessCallback;
+import no.nordicsemi.android.ble.callback.TransferProgressCallback;
 import no.nordicsemi.android.ble.callback.WriteProgressCallback;
+import no.nordicsemi.android.ble.data.BufferPool;
+import no.nordicsemi.android.ble.data.ByteBufferSplitter;
 import no.nordicsemi.android.ble.data.Data;
+import no.nordicsemi.android.ble.data.DataSource;
 import no.nordicsemi.android.ble.data.DataSplitter;
 import no.nordicsemi.android.ble.data.DefaultMtuSplitter;
+import no.nordicsemi.android.ble.data.OffsetDataSplitter;
 
 @SuppressWarnings({"unused", "WeakerAccess"})
 public final class WriteRequest extends TimeoutableValueRequest<DataSentCallback> implements Operation {
 	private final static DataSplitter MTU_SPLITTER = new DefaultMtuSplitter();
 
 	private WriteProgressCallback progressCallback;
+	private ProgressAggregator progress;
 	private DataSplitter dataSplitter;
+	private BufferPool bufferPool;
+	private ByteBuffer buffer;
 	private final byte[] data;
+	private final DataSource source;
+	private IOException sourceError;
 	private final int writeType;
 	private byte[] currentChunk;
 	private byte[] nextChunk;
+	private boolean adaptive;
+	private LinkPacer pacer;
+	private int dataOffset = 0;
+	/** Offsets following the packets not confirmed yet, in a ring buffer. */
+	private int[] packetOffsets;
+	private int packetOffsetsHead;
+	private int packetOffsetsCount;
+	private long acknowledgedOffset = 0;
+	private long sourceSkip = 0;
+	private boolean coalescing;
+	private int index = 0;
 	private int count = 0;
+	private long bytesSent = 0;
 	private boolean complete = false;
 
 	WriteRequest(@NonNull final Type type) {
@@ -68,6 +93,7 @@ public final class WriteRequest extends TimeoutableValueRequest<DataSentCallback
 		super(type, characteristic);
 		// not used:
 		this.data = null;
+		this.source = null;
 		this.writeType = 0;
 		// getData(int) isn't called on enabling and disabling notifications/indications.
 		this.complete = true;
@@ -79,6 +105,7 @@ public final class WriteRequest extends TimeoutableValueRequest<DataSentCallback
 				 @WriteType final int writeType) {
 		super(type, characteristic);
 		this.data = Bytes.copy(data, offset, length);
+		this.source = null;
 		this.writeType = writeType;
 	}
 
@@ -87,6 +114,7 @@ public final class WriteRequest extends TimeoutableValueRequest<DataSentCallback
 				 @IntRange(from = 0) final int offset, @IntRange(from = 0) final int length) {
 		super(type, characteristic);
 		this.data = Bytes.copy(data, offset, length);
+		this.source = null;
 		this.writeType = 0;
 	}
 
@@ -95,9 +123,18 @@ public final class WriteRequest extends TimeoutableValueRequest<DataSentCallback
 				 @IntRange(from = 0) final int offset, @IntRange(from = 0) final int length) {
 		super(type, descriptor);
 		this.data = Bytes.copy(data, offset, length);
+		this.source = null;
 		this.writeType = BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT;
 	}
 
+	WriteRequest(@NonNull final Type type, @Nullable final BluetoothGattCharacteristic characteristic,
+				 @NonNull final DataSource source, @WriteType final int writeType) {
+		super(type, characteristic);
+		this.data = null;
+		this.source = source;
+		this.writeType = writeType;
+	}
+
 	@NonNull
 	@Override
 	WriteRequest setRequestHandler(@NonNull final RequestHandler requestHandler) {
@@ -154,6 +191,20 @@ public final class WriteRequest extends TimeoutableValueRequest<DataSentCallback
 		return this;
 	}
 
+	@NonNull
+	@Override
+	public WriteRequest priority(@RequestPriority final int priority) {
+		super.priority(priority);
+		return this;
+	}
+
+	@NonNull
+	@Override
+	public WriteRequest expireAfter(@IntRange(from = 0) final long ttl) {
+		super.expireAfter(ttl);
+		return this;
+	}
+
 	@Override
 	@NonNull
 	public WriteRequest with(@NonNull final DataSentCallback callback) {
@@ -222,6 +273,153 @@ public final class WriteRequest extends TimeoutableValueRequest<DataSentCallback
 		return this;
 	}
 
+	/**
+	 * Sets a callback reporting the progress of the transfer at most every 100 ms,
+	 * and when all packets were sent. This is more efficient than a
+	 * {@link WriteProgressCallback}, which is called for every packet.
+	 *
+	 * @param callback the progress callback.
+	 * @return The request.
+	 */
+	@NonNull
+	public WriteRequest progress(@NonNull final TransferProgressCallback callback) {
+		return progress(callback, ProgressAggregator.DEFAULT_INTERVAL, 0);
+	}
+
+	/**
+	 * Sets a callback reporting the progress of the transfer when the given time has elapsed,
+	 * or the given number of bytes were sent since the last report, whichever comes first,
+	 * and when all packets were sent. This is more efficient than a
+	 * {@link WriteProgressCallback}, which is called for every packet.
+	 *
+	 * @param callback the progress callback.
+	 * @param interval the minimum time between reports, in milliseconds, or 0 to disable.
+	 * @param byteStep the minimum number of bytes between reports, or 0 to disable.
+	 * @return The request.
+	 */
+	@NonNull
+	public WriteRequest progress(@NonNull final TransferProgressCallback callback,
+								 @IntRange(from = 0) final long interval,
+								 @IntRange(from = 0) final int byteStep) {
+		this.progress = new ProgressAggregator(callback, interval, byteStep);
+		return this;
+	}
+
+	/**
+	 * Enables adaptive packet length. The packet length is chosen so that a packet can be sent
+	 * in a single connection event with the current connection interval and PHY, and is updated
+	 * during the transfer when the link parameters change, e.g. when the peripheral requests
+	 * a different connection interval.
+	 * <p>
+	 * The packet length is adapted only when using a splitter implementing
+	 * {@link OffsetDataSplitter}, like the default one, or a {@link DataSource};
+	 * other splitters always get MTU-3 bytes as the maximum length.
+	 * <p>
+	 * If no splitter was set, the default one is used.
+	 *
+	 * @return The request.
+	 * @throws IllegalStateException thrown when the request has already been enqueued.
+	 */
+	@NonNull
+	public WriteRequest adaptive() {
+		if (enqueued)
+			throw new IllegalStateException("Request already enqueued");
+		if (dataSplitter == null && source == null)
+			this.dataSplitter = MTU_SPLITTER;
+		this.adaptive = true;
+		return this;
+	}
+
+	/**
+	 * Continues an interrupted transfer of the same data from the point described by
+	 * the token obtained from the failed request using {@link #getResumeToken()}.
+	 * <p>
+	 * With a splitter implementing {@link OffsetDataSplitter}, like the default one, or a
+	 * {@link DataSource}, the transfer continues from the offset of the first byte not sent,
+	 * even if the MTU has changed. Other splitters continue from the index of the first
+	 * packet not sent, therefore the same MTU must be used.
+	 * <p>
+	 * If no splitter was set, the default one is used.
+	 *
+	 * @param token the resume token.
+	 * @return The request.
+	 * @throws IllegalStateException    thrown when the request has already been enqueued.
+	 * @throws IllegalArgumentException thrown when the length of the data does not match.
+	 */
+	@NonNull
+	public WriteRequest resumeFrom(@NonNull final ResumeToken token) {
+		if (enqueued)
+			throw new IllegalStateException("Request already enqueued");
+		final long length = getLength();
+		if (length >= 0 && token.getLength() >= 0 && length != token.getLength())
+			throw new IllegalArgumentException("Resume token does not match the data");
+		if (dataSplitter == null && source == null)
+			this.dataSplitter = MTU_SPLITTER;
+		this.dataOffset = (int) Math.min(Integer.MAX_VALUE, token.getOffset());
+		this.acknowledgedOffset = token.getOffset();
+		this.sourceSkip = source != null ? token.getOffset() : 0;
+		this.index = this.count = token.getPacketCount();
+		return this;
+	}
+
+	/**
+	 * Returns the token describing how much of the data has been sent. If the request fails,
+	 * e.g. because the device has disconnected, the token may be used to send the rest of the
+	 * data after reconnection using {@link #resumeFrom(ResumeToken)}.
+	 *
+	 * @return The resume token.
+	 */
+	@NonNull
+	public ResumeToken getResumeToken() {
+		return new ResumeToken(getLength(), acknowledgedOffset, count);
+	}
+
+	private long getLength() {
+		if (source != null)
+			return source.length();
+		return data != null ? data.length : 0;
+	}
+
+	/**
+	 * Sets a pool of arrays used for packets. When set, and the splitter implements
+	 * {@link ByteBufferSplitter} or {@link OffsetDataSplitter}, like the default one, packets are written into arrays
+	 * obtained from the pool, and returned to it after they were sent. This avoids allocating
+	 * a new array for each packet when sending large amounts of data.
+	 * <p>
+	 * <b>Note:</b> The array given to the {@link WriteProgressCallback} is reused
+	 * after the callback returns, so it must not be kept.
+	 *
+	 * @param pool the pool, which may be shared with other requests.
+	 * @return The request.
+	 */
+	@NonNull
+	public WriteRequest usePool(@NonNull final BufferPool pool) {
+		this.bufferPool = pool;
+		return this;
+	}
+
+	/**
+	 * Enables latest-value-wins coalescing. When this request is enqueued while another
+	 * coalescing write to the same characteristic or descriptor is still waiting in the queue
+	 * with the same priority, this request takes its place, and the older one fails with
+	 * {@link FailCallback#REASON_SUPERSEDED} without being sent.
+	 * <p>
+	 * This is useful for characteristics where only the latest value matters, like a LED
+	 * color or a motor speed, written more often than the connection can handle.
+	 * Requests which have already started, and requests in the
+	 * {@link BleManager#initialize()} method or in a {@link RequestQueue}, are never replaced.
+	 *
+	 * @return The request.
+	 * @throws IllegalStateException thrown when the request has already been enqueued.
+	 */
+	@NonNull
+	public WriteRequest coalesce() {
+		if (enqueued)
+			throw new IllegalStateException("Request already enqueued");
+		this.coalescing = true;
+		return this;
+	}
+
 	/**
 	 * This method makes sure the data sent will be split to at-most MTU-3 bytes long packets.
 	 * This is because Long Write does not work with Reliable Write.
@@ -242,26 +440,39 @@ public final class WriteRequest extends TimeoutableValueRequest<DataSentCallback
 	 */
 	@NonNull
 	byte[] getData(@IntRange(from = 23, to = 517) final int mtu) {
+		// Write Request and Write Command require 3 bytes for handler and op code.
+		// Write Signed requires 12 bytes, as the signature is sent.
+		int maxLength = writeType != BluetoothGattCharacteristic.WRITE_TYPE_SIGNED ?
+				mtu - 3 : mtu - 12;
+
+		if (source != null) {
+			if (pacer != null)
+				maxLength = pacer.getMaxLength(maxLength);
+			return getSourceData(maxLength);
+		}
+
 		if (dataSplitter == null || data == null) {
 			complete = true;
 			currentChunk = data;
 			return data != null ? data : new byte[] {};
 		}
 
-		// Write Request and Write Command require 3 bytes for handler and op code.
-		// Write Signed requires 12 bytes, as the signature is sent.
-		final int maxLength = writeType != BluetoothGattCharacteristic.WRITE_TYPE_SIGNED ?
-				mtu - 3 : mtu - 12;
+		if (dataSplitter instanceof final OffsetDataSplitter splitter) {
+			if (pacer != null)
+				maxLength = pacer.getMaxLength(maxLength);
+			return getDataAt(splitter, maxLength);
+		}
 
 		byte[] chunk = nextChunk;
 		// Get the first chunk.
 		if (chunk == null) {
-			chunk = dataSplitter.chunk(data, count, maxLength);
+			chunk = chunk(index, maxLength);
 		}
 		// If there's something to send, check if there are any more packets to be sent later.
 		if (chunk != null) {
-			nextChunk = dataSplitter.chunk(data, count + 1, maxLength);
+			nextChunk = chunk(index + 1, maxLength);
 		}
+		index++;
 		// If there's no next packet left, we are done.
 		if (nextChunk == null) {
 			complete = true;
@@ -270,6 +481,191 @@ public final class WriteRequest extends TimeoutableValueRequest<DataSentCallback
 		return chunk != null ? chunk : new byte[] {};
 	}
 
+	/**
+	 * Returns the next packet of the data, starting where the previous one ended. Unlike
+	 * the index, the offset does not depend on the length of previous packets, which allows
+	 * the packet length to change during the transfer and resuming it.
+	 * <p>
+	 * The offset following each packet is kept until the packet is confirmed, to know
+	 * which part of the data has been sent.
+	 *
+	 * @param splitter  the splitter.
+	 * @param maxLength the maximum packet length.
+	 * @return The next bytes to be sent.
+	 */
+	@NonNull
+	private byte[] getDataAt(@NonNull final OffsetDataSplitter splitter, final int maxLength) {
+		final byte[] chunk;
+		final int consumed;
+		if (splitter instanceof DefaultMtuSplitter) {
+			// The packet length is known in advance, so the data are copied directly to the packet.
+			consumed = Math.min(maxLength, data.length - dataOffset);
+			chunk = consumed > 0 ? obtainPacket(consumed) : null;
+			if (chunk != null)
+				System.arraycopy(data, dataOffset, chunk, 0, consumed);
+		} else {
+			if (buffer == null || buffer.capacity() < maxLength)
+				buffer = ByteBuffer.allocate(maxLength);
+			buffer.clear();
+			buffer.limit(maxLength);
+			consumed = dataOffset < data.length ?
+					splitter.chunkAt(data, dataOffset, maxLength, buffer) : -1;
+			chunk = consumed >= 0 ? obtainPacket(buffer.position()) : null;
+			if (chunk != null)
+				System.arraycopy(buffer.array(), 0, chunk, 0, chunk.length);
+		}
+		if (chunk == null) {
+			complete = true;
+			currentChunk = null;
+			return new byte[] {};
+		}
+		dataOffset += consumed;
+		addPacketOffset(dataOffset);
+		index++;
+		complete = dataOffset >= data.length;
+		currentChunk = chunk;
+		return chunk;
+	}
+
+	@NonNull
+	private byte[] obtainPacket(final int length) {
+		return isPooled() ? bufferPool.obtain(length) : new byte[length];
+	}
+
+	private void addPacketOffset(final int offset) {
+		if (packetOffsets == null) {
+			packetOffsets = new int[4];
+		} else if (packetOffsetsCount == packetOffsets.length) {
+			final int[] offsets = new int[packetOffsets.length * 2];
+			for (int i = 0; i < packetOffsetsCount; ++i)
+				offsets[i] = packetOffsets[(packetOffsetsHead + i) % packetOffsets.length];
+			packetOffsets = offsets;
+			packetOffsetsHead = 0;
+		}
+		packetOffsets[(packetOffsetsHead + packetOffsetsCount++) % packetOffsets.length] = offset;
+	}
+
+	private int pollPacketOffset() {
+		final int offset = packetOffsets[packetOffsetsHead];
+		packetOffsetsHead = (packetOffsetsHead + 1) % packetOffsets.length;
+		packetOffsetsCount--;
+		return offset;
+	}
+
+	/**
+	 * Returns the index'th packet of the data. If a buffer pool is set, the packet is copied
+	 * to an array obtained from the pool, without allocating memory.
+	 */
+	@Nullable
+	private byte[] chunk(final int index, final int maxLength) {
+		if (isPooled()) {
+			final ByteBufferSplitter splitter = (ByteBufferSplitter) dataSplitter;
+			if (buffer == null || buffer.capacity() < maxLength)
+				buffer = ByteBuffer.allocate(maxLength);
+			buffer.clear();
+			if (!splitter.chunk(data, index, maxLength, buffer))
+				return null;
+			final byte[] chunk = bufferPool.obtain(buffer.position());
+			System.arraycopy(buffer.array(), 0, chunk, 0, chunk.length);
+			return chunk;
+		}
+		return dataSplitter.chunk(data, index, maxLength);
+	}
+
+	private boolean isPooled() {
+		return bufferPool != null &&
+				(dataSplitter instanceof ByteBufferSplitter || dataSplitter instanceof OffsetDataSplitter);
+	}
+
+	/**
+	 * Returns the next packet read from the data source. The following packet is read ahead
+	 * to know whether the current one is the last one.
+	 * <p>
+	 * If reading fails, the packets read so far are sent and the request fails afterwards.
+	 *
+	 * @param maxLength the maximum packet length.
+	 * @return The next bytes to be sent.
+	 */
+	@NonNull
+	private byte[] getSourceData(final int maxLength) {
+		byte[] chunk = nextChunk;
+		try {
+			if (sourceError != null)
+				throw sourceError;
+			if (sourceSkip > 0) {
+				source.skip(sourceSkip);
+				sourceSkip = 0;
+			}
+			if (chunk == null)
+				chunk = source.next(maxLength);
+			nextChunk = chunk != null ? source.next(maxLength) : null;
+		} catch (final IOException e) {
+			sourceError = e;
+			nextChunk = null;
+			if (chunk == null) {
+				complete = true;
+				currentChunk = null;
+				return new byte[] {};
+			}
+			// Send the packet that was read; the request will fail on the next one.
+		}
+		index++;
+		if (nextChunk == null && sourceError == null) {
+			complete = true;
+		}
+		currentChunk = chunk;
+		return chunk != null ? chunk : new byte[] {};
+	}
+
+	/**
+	 * Returns whether reading from the data source has failed and there is nothing more
+	 * to be sent. The request should be failed.
+	 *
+	 * @return True if the data source threw an exception.
+	 */
+	boolean hasSourceFailed() {
+		return sourceError != null && complete;
+	}
+
+	@Override
+	public void cancel() {
+		super.cancel();
+		if (!started)
+			closeSource();
+	}
+
+	@Override
+	boolean notifySuccess(@NonNull final BluetoothDevice device) {
+		closeSource();
+		if (sourceError != null) {
+			notifyFail(device, FailCallback.REASON_REQUEST_FAILED);
+			return false;
+		}
+		return super.notifySuccess(device);
+	}
+
+	@Override
+	void notifyFail(@NonNull final BluetoothDevice device, final int status) {
+		closeSource();
+		super.notifyFail(device, status);
+	}
+
+	@Override
+	void notifyInvalidRequest() {
+		closeSource();
+		super.notifyInvalidRequest();
+	}
+
+	private void closeSource() {
+		if (source != null) {
+			try {
+				source.close();
+			} catch (final IOException e) {
+				Log.w(TAG, "Closing data source failed", e);
+			}
+		}
+	}
+
 	/**
 	 * Method called when packet has been sent and confirmed (when Write With Response was used),
 	 * or added to local outgoing buffer (when Write Without Response was used).
@@ -282,17 +678,36 @@ public final class WriteRequest extends TimeoutableValueRequest<DataSentCallback
 	boolean notifyPacketSent(@NonNull final BluetoothDevice device, @Nullable final byte[] data) {
 		final int currentCount = count;
 		final byte[] currentChunk = this.currentChunk;
-		handler.post(() -> {
-			if (progressCallback != null) {
+		if (packetOffsetsCount > 0)
+			acknowledgedOffset = pollPacketOffset();
+		else if (currentChunk != null)
+			acknowledgedOffset += currentChunk.length;
+		// Compare the data received with the data sent, before the packet may be recycled.
+		// Don't check the data when using Write Without Response.
+		final boolean valid = writeType != BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT ||
+				Arrays.equals(data, currentChunk);
+		final int length = currentChunk != null ? currentChunk.length : 0;
+		final BufferPool pool = isPooled() && currentChunk != this.data ? bufferPool : null;
+		final WriteProgressCallback progressCallback = this.progressCallback;
+		if (progressCallback != null) {
+			handler.post(() -> {
 				try {
 					progressCallback.onPacketSent(device, currentChunk, currentCount);
 				} catch (final Throwable t) {
 					Log.e(TAG, "Exception in Progress callback", t);
 				}
-			}
-		});
+				if (pool != null && currentChunk != null)
+					pool.recycle(currentChunk);
+			});
+		} else if (pool != null && currentChunk != null) {
+			pool.recycle(currentChunk);
+		}
 		count++;
-		if (complete) {
+		bytesSent += length;
+		final boolean last = complete;
+		if (progress != null)
+			progress.onPacket(handler, device, length, last);
+		if (last) {
 			handler.post(() -> {
 				if (valueCallback != null) {
 					try {
@@ -303,13 +718,7 @@ public final class WriteRequest extends TimeoutableValueRequest<DataSentCallback
 				}
 			});
 		}
-		if (writeType == BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT) {
-			// Compare the data received with the data sent.
-			return Arrays.equals(data, currentChunk);
-		} else {
-			// Don't check the data when using Write Without Response.
-			return true;
-		}
+		return valid;
 	}
 
 	/**
@@ -321,6 +730,50 @@ public final class WriteRequest extends TimeoutableValueRequest<DataSentCallback
 		return !complete && !cancelled && !finished;
 	}
 
+	/**
+	 * Returns the number of bytes confirmed as sent so far.
+	 *
+	 * @return The total length of packets sent.
+	 */
+	long getBytesSent() {
+		return bytesSent;
+	}
+
+	boolean isCoalescing() {
+		return coalescing;
+	}
+
+	/**
+	 * Returns whether this request may replace the given request in the queue.
+	 *
+	 * @param request a queued request.
+	 * @return True if both are coalescing writes to the same attribute which haven't started.
+	 * @see #coalesce()
+	 */
+	boolean supersedes(@NonNull final Request request) {
+		return request instanceof final WriteRequest wr && wr.coalescing && coalescing
+				&& !wr.started && !wr.finished && wr.type == type
+				&& wr.characteristic == characteristic && wr.descriptor == descriptor;
+	}
+
+	/**
+	 * Returns whether the packet length should be adapted to the link parameters.
+	 *
+	 * @return True if {@link #adaptive()} was called.
+	 */
+	boolean isAdaptive() {
+		return adaptive;
+	}
+
+	/**
+	 * Sets the pacer tracking the parameters of the link used by this request.
+	 *
+	 * @param pacer the pacer.
+	 */
+	void setPacer(@NonNull final LinkPacer pacer) {
+		this.pacer = pacer;
+	}
+
 	/**
 	 * Returns the write type that should be used to send the data.
 	 *
@@ -0,0 +1,16 @@
+package no.nordicsemi.android.ble.annotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import androidx.annotation.IntDef;
+import no.nordicsemi.android.ble.BleManager;
+
+@Retention(RetentionPolicy.SOURCE)
+@IntDef(value = {
+		BleManager.QUEUE_OVERFLOW_BLOCK,
+		BleManager.QUEUE_OVERFLOW_FAIL,
+		BleManager.QUEUE_OVERFLOW_DROP_OLDEST,
+		BleManager.QUEUE_OVERFLOW_DROP_NEWEST
+})
+public @interface QueueOverflowPolicy {}
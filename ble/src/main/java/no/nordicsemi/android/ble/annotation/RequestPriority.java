@@ -0,0 +1,16 @@
+package no.nordicsemi.android.ble.annotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import androidx.annotation.IntDef;
+import no.nordicsemi.android.ble.Request;
+
+@Retention(RetentionPolicy.SOURCE)
+@IntDef(value = {
+		Request.PRIORITY_CONTROL,
+		Request.PRIORITY_INTERACTIVE,
+		Request.PRIORITY_BULK,
+		Request.PRIORITY_BACKGROUND
+})
+public @interface RequestPriority {}
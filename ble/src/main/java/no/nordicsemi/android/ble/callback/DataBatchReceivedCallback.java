@@ -0,0 +1,24 @@
+package no.nordicsemi.android.ble.callback;
+
+import android.bluetooth.BluetoothDevice;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+import no.nordicsemi.android.ble.data.Data;
+
+@FunctionalInterface
+public interface DataBatchReceivedCallback {
+
+	/**
+	 * Callback received with all values that have changed using notifications or indications
+	 * since the previous call.
+	 *
+	 * @param device  the target device.
+	 * @param packets the data received, in order. If the
+	 *                {@link no.nordicsemi.android.ble.data.DataMerger} was used, each element
+	 *                contains a merged result. The list is not modified after the call.
+	 */
+	void onDataReceived(@NonNull final BluetoothDevice device, @NonNull final List<Data> packets);
+}
@@ -54,6 +54,25 @@ public interface FailCallback {
 	 * but this seems to fix the problem only before a new bond is created.
 	 */
 	int REASON_UNSUPPORTED_CONFIGURATION = -9;
+	/**
+	 * Returned when the request has waited in the queue for longer than the time set using
+	 * {@link no.nordicsemi.android.ble.Request#expireAfter(long)}. The request was not executed.
+	 */
+	int REASON_EXPIRED = -10;
+	/**
+	 * Returned when the request was removed from, or not added to a full queue, according
+	 * to the overflow policy set using
+	 * {@link no.nordicsemi.android.ble.BleManager#setRequestQueueCapacity(int, int)}.
+	 * The request was not executed.
+	 */
+	int REASON_QUEUE_FULL = -11;
+	/**
+	 * Returned when a write request with coalescing enabled was replaced in the queue by a newer
+	 * write to the same attribute. The request was not executed.
+	 *
+	 * @see no.nordicsemi.android.ble.WriteRequest#coalesce()
+	 */
+	int REASON_SUPERSEDED = -12;
 	int REASON_BLUETOOTH_DISABLED = -100;
 
 	/**
@@ -66,8 +85,8 @@ public interface FailCallback {
 	 *               {@link #REASON_DEVICE_NOT_SUPPORTED} (only for Connect request),
 	 *               {@link #REASON_BLUETOOTH_DISABLED}, {@link #REASON_NULL_ATTRIBUTE},
 	 *               {@link #REASON_VALIDATION}, {@link #REASON_CANCELLED}, {@link #REASON_NOT_ENABLED},
-	 *               {@link #REASON_UNSUPPORTED_CONFIGURATION},
-	 *               or {@link #REASON_REQUEST_FAILED} (for other reason).
+	 *               {@link #REASON_UNSUPPORTED_CONFIGURATION}, {@link #REASON_EXPIRED},
+	 *               {@link #REASON_QUEUE_FULL}, {@link #REASON_SUPERSEDED}, or {@link #REASON_REQUEST_FAILED} (for other reason).
 	 */
 	void onRequestFailed(@NonNull final BluetoothDevice device, final int status);
 }
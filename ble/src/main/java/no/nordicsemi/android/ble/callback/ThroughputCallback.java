@@ -0,0 +1,23 @@
+package no.nordicsemi.android.ble.callback;
+
+import android.bluetooth.BluetoothDevice;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+
+@FunctionalInterface
+public interface ThroughputCallback {
+
+	/**
+	 * Method called when a bulk transfer has completed with success.
+	 * The throughput is calculated from the time the first data packet was sent until
+	 * the last one was confirmed, excluding negotiation of the link parameters.
+	 *
+	 * @param device         the target device.
+	 * @param bytes          the number of bytes sent.
+	 * @param bytesPerSecond the achieved throughput, in bytes per second.
+	 */
+	void onTransferCompleted(@NonNull final BluetoothDevice device,
+							 @IntRange(from = 0) final long bytes,
+							 @IntRange(from = 0) final long bytesPerSecond);
+}
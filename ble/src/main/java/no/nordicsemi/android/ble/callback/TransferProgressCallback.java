@@ -0,0 +1,26 @@
+package no.nordicsemi.android.ble.callback;
+
+import android.bluetooth.BluetoothDevice;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+
+@FunctionalInterface
+public interface TransferProgressCallback {
+
+	/**
+	 * Callback reporting the progress of a split or merged transfer. Unlike
+	 * {@link WriteProgressCallback} and {@link ReadProgressCallback}, it is not called for
+	 * every packet, but at most once per configured interval or number of bytes, and always
+	 * when the transfer is complete.
+	 *
+	 * @param device   the target device.
+	 * @param packets  the number of packets sent or received so far.
+	 * @param bytes    the total length of those packets.
+	 * @param complete true, if this is the last event of the transfer.
+	 */
+	void onProgress(@NonNull final BluetoothDevice device,
+					@IntRange(from = 0) final int packets,
+					@IntRange(from = 0) final long bytes,
+					final boolean complete);
+}
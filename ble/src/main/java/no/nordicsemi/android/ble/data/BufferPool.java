@@ -0,0 +1,88 @@
+package no.nordicsemi.android.ble.data;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+
+/**
+ * A pool of byte arrays used for packets, which allows sending data without allocating
+ * a new array for each packet.
+ * <p>
+ * Arrays are pooled by their length. Only arrays up to {@link #MAX_LENGTH} bytes are pooled,
+ * which covers all packets up to the maximum MTU. The pool may be shared by multiple requests
+ * and managers.
+ * <p>
+ * <b>Note:</b> A packet returned to the pool will be reused, so it must not be kept
+ * by the app after it has been passed to a callback.
+ */
+@SuppressWarnings("unused")
+public final class BufferPool {
+	/** The maximum length of a pooled array, equal to the maximum MTU - 3. */
+	public static final int MAX_LENGTH = 514;
+
+	private final ArrayDeque<byte[]>[] buffers;
+	private final int maxBuffers;
+
+	/**
+	 * Creates a pool keeping at most the given number of arrays of each length.
+	 *
+	 * @param maxBuffers the maximum number of pooled arrays with the same length.
+	 */
+	@SuppressWarnings("unchecked")
+	public BufferPool(@IntRange(from = 1) final int maxBuffers) {
+		if (maxBuffers < 1)
+			throw new IllegalArgumentException("At least 1 buffer must be pooled");
+		this.maxBuffers = maxBuffers;
+		this.buffers = new ArrayDeque[MAX_LENGTH + 1];
+	}
+
+	/**
+	 * Returns an array with the given length, either from the pool, or a new one.
+	 * The content of the array is undefined.
+	 *
+	 * @param length the required length.
+	 * @return The array.
+	 */
+	@NonNull
+	public byte[] obtain(@IntRange(from = 0) final int length) {
+		if (length <= MAX_LENGTH) {
+			synchronized (this) {
+				final ArrayDeque<byte[]> pool = buffers[length];
+				if (pool != null && !pool.isEmpty())
+					return pool.pop();
+			}
+		}
+		return new byte[length];
+	}
+
+	/**
+	 * Returns the array to the pool. The array must not be used afterwards.
+	 *
+	 * @param buffer the array obtained using {@link #obtain(int)}.
+	 */
+	public void recycle(@NonNull final byte[] buffer) {
+		if (buffer.length > MAX_LENGTH)
+			return;
+		synchronized (this) {
+			ArrayDeque<byte[]> pool = buffers[buffer.length];
+			if (pool == null)
+				pool = buffers[buffer.length] = new ArrayDeque<>(maxBuffers);
+			if (pool.size() < maxBuffers)
+				pool.push(buffer);
+		}
+	}
+
+	/**
+	 * Returns the number of pooled arrays with the given length.
+	 *
+	 * @param length the array length.
+	 * @return The number of arrays available.
+	 */
+	public synchronized int getAvailable(@IntRange(from = 0) final int length) {
+		if (length > MAX_LENGTH)
+			return 0;
+		final ArrayDeque<byte[]> pool = buffers[length];
+		return pool != null ? pool.size() : 0;
+	}
+}
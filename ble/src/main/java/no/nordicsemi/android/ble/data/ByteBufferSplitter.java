@@ -0,0 +1,31 @@
+package no.nordicsemi.android.ble.data;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link DataSplitter} which can write packets into a buffer provided by the caller,
+ * instead of allocating a new array for each packet.
+ * <p>
+ * The allocation-free path is used by a {@link no.nordicsemi.android.ble.WriteRequest}
+ * with a {@link BufferPool} set.
+ */
+public interface ByteBufferSplitter extends DataSplitter {
+
+	/**
+	 * The implementation should write the index'th packet from given message, with at most
+	 * maxLength size, into the output buffer, starting at its current position.
+	 *
+	 * @param message   the full message to be chunk.
+	 * @param index     index of a packet, 0-based.
+	 * @param maxLength maximum length of the packet. Equals to MTU-3.
+	 * @param output    the buffer to write the packet to, with at least maxLength bytes remaining.
+	 * @return True if the packet was written, false if the whole message was already split.
+	 */
+	boolean chunk(@NonNull final byte[] message,
+				  @IntRange(from = 0) final int index,
+				  @IntRange(from = 20) final int maxLength,
+				  @NonNull final ByteBuffer output);
+}
@@ -39,4 +39,16 @@ public interface DataMerger {
 	 */
 	boolean merge(@NonNull final DataStream output,
 				  @Nullable final byte[] lastPacket, @IntRange(from = 0) final int index);
+
+	/**
+	 * Returns true, if the last packet contained more data than needed to complete the message.
+	 * In that case, {@link #merge(DataStream, byte[], int)} will be called again with
+	 * a null packet and a new output stream to merge the remaining data.
+	 *
+	 * @return True, if data following the last complete message are waiting to be merged.
+	 * By default, false.
+	 */
+	default boolean hasPendingData() {
+		return false;
+	}
 }
@@ -0,0 +1,234 @@
+package no.nordicsemi.android.ble.data;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A source of data written in packets, read lazily while the data are being sent.
+ * <p>
+ * Unlike a byte array given to a {@link no.nordicsemi.android.ble.WriteRequest},
+ * a source does not require the whole payload to be kept in memory, so it can be used
+ * to send large files, like firmware images, keeping only a few packets on the heap.
+ * <p>
+ * The source is closed, together with the underlying stream or channel, when the request
+ * finishes, fails or is cancelled.
+ */
+@SuppressWarnings("unused")
+public abstract class DataSource implements Closeable {
+	private static final int SKIP_BUFFER_SIZE = 4096;
+
+	/**
+	 * Returns the next packet, with at most maxLength bytes.
+	 * Shorter packets may be returned only at the end of the data.
+	 *
+	 * @param maxLength maximum length of the packet.
+	 * @return The next packet, or null if all data were read.
+	 * @throws IOException if reading data failed.
+	 */
+	@Nullable
+	public abstract byte[] next(@IntRange(from = 1) final int maxLength) throws IOException;
+
+	/**
+	 * Returns the total number of bytes in the source, if known.
+	 *
+	 * @return The length in bytes, or -1 if unknown.
+	 */
+	public long length() {
+		return -1;
+	}
+
+	/**
+	 * Skips the given number of bytes, e.g. when a transfer is resumed.
+	 *
+	 * @param bytes the number of bytes to skip.
+	 * @throws IOException if reading data failed, or the source has fewer bytes.
+	 */
+	public void skip(@IntRange(from = 0) final long bytes) throws IOException {
+		long remaining = bytes;
+		while (remaining > 0) {
+			final byte[] packet = next((int) Math.min(remaining, SKIP_BUFFER_SIZE));
+			if (packet == null)
+				throw new EOFException();
+			remaining -= packet.length;
+		}
+	}
+
+	/**
+	 * Creates a source reading from the given stream. The stream should be buffered,
+	 * as it is read in packets no longer than MTU-3 bytes.
+	 *
+	 * @param stream the input stream.
+	 * @return The data source.
+	 */
+	@NonNull
+	public static DataSource from(@NonNull final InputStream stream) {
+		return new StreamSource(stream);
+	}
+
+	/**
+	 * Creates a source reading from the given blocking channel.
+	 *
+	 * @param channel the channel, e.g. a {@link FileChannel}.
+	 * @return The data source.
+	 */
+	@NonNull
+	public static DataSource from(@NonNull final ReadableByteChannel channel) {
+		return new ChannelSource(channel);
+	}
+
+	/**
+	 * Creates a source reading from a region of a file mapped into memory.
+	 * The file content is not copied to the heap, except for packets being sent.
+	 *
+	 * @param channel  the file channel, opened for reading.
+	 * @param position the position in the file at which the region starts.
+	 * @param size     the size of the region, in bytes.
+	 * @return The data source.
+	 * @throws IOException if mapping the file failed.
+	 */
+	@NonNull
+	public static DataSource map(@NonNull final FileChannel channel,
+								 @IntRange(from = 0) final long position,
+								 @IntRange(from = 0) final long size) throws IOException {
+		return new MappedSource(channel, channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+	}
+
+	private static final class StreamSource extends DataSource {
+		@NonNull
+		private final InputStream stream;
+		private byte[] buffer;
+
+		private StreamSource(@NonNull final InputStream stream) {
+			this.stream = stream;
+		}
+
+		@Nullable
+		@Override
+		public byte[] next(final int maxLength) throws IOException {
+			if (buffer == null || buffer.length < maxLength)
+				buffer = new byte[maxLength];
+			int length = 0;
+			while (length < maxLength) {
+				final int read = stream.read(buffer, length, maxLength - length);
+				if (read < 0)
+					break;
+				length += read;
+			}
+			return copy(buffer, length);
+		}
+
+		@Override
+		public void close() throws IOException {
+			stream.close();
+		}
+	}
+
+	private static final class ChannelSource extends DataSource {
+		@NonNull
+		private final ReadableByteChannel channel;
+		private final long length;
+		private ByteBuffer buffer;
+
+		private ChannelSource(@NonNull final ReadableByteChannel channel) {
+			this.channel = channel;
+			this.length = remaining(channel);
+		}
+
+		private static long remaining(@NonNull final ReadableByteChannel channel) {
+			if (channel instanceof final FileChannel fc) {
+				try {
+					return fc.size() - fc.position();
+				} catch (final IOException e) {
+					return -1;
+				}
+			}
+			return -1;
+		}
+
+		@Nullable
+		@Override
+		public byte[] next(final int maxLength) throws IOException {
+			if (buffer == null || buffer.capacity() < maxLength)
+				buffer = ByteBuffer.allocate(maxLength);
+			buffer.clear();
+			buffer.limit(maxLength);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0)
+					break;
+			}
+			return copy(buffer.array(), buffer.position());
+		}
+
+		@Override
+		public long length() {
+			return length;
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	private static final class MappedSource extends DataSource {
+		@NonNull
+		private final FileChannel channel;
+		@NonNull
+		private final MappedByteBuffer buffer;
+		private final long length;
+
+		private MappedSource(@NonNull final FileChannel channel,
+							 @NonNull final MappedByteBuffer buffer) {
+			this.channel = channel;
+			this.buffer = buffer;
+			this.length = buffer.remaining();
+		}
+
+		@Nullable
+		@Override
+		public byte[] next(final int maxLength) {
+			final int length = Math.min(maxLength, buffer.remaining());
+			if (length == 0)
+				return null;
+			final byte[] packet = new byte[length];
+			buffer.get(packet);
+			return packet;
+		}
+
+		@Override
+		public void skip(final long bytes) throws IOException {
+			if (bytes > buffer.remaining())
+				throw new EOFException();
+			buffer.position(buffer.position() + (int) bytes);
+		}
+
+		@Override
+		public long length() {
+			return length;
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	@Nullable
+	private static byte[] copy(@NonNull final byte[] buffer, final int length) {
+		if (length == 0)
+			return null;
+		final byte[] packet = new byte[length];
+		System.arraycopy(buffer, 0, packet, 0, length);
+		return packet;
+	}
+}
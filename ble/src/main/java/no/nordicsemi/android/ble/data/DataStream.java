@@ -22,18 +22,54 @@
 
 package no.nordicsemi.android.ble.data;
 
-import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
 
 import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+/**
+ * A growable buffer for merged messages.
+ * <p>
+ * The stream is not synchronized. If the expected size of the message is known, e.g. from
+ * a length header, give it in the constructor or to {@link #ensureCapacity(int)}, so that the
+ * buffer does not need to grow. When the buffer is exactly full, {@link #toByteArray()} and
+ * {@link #toData()} return the buffer itself, without copying. The stream makes a copy
+ * before any following write.
+ */
 @SuppressWarnings("WeakerAccess")
 public class DataStream {
-	private final ByteArrayOutputStream buffer;
+	private static final int DEFAULT_CAPACITY = 32;
+
+	@NonNull
+	private byte[] buffer;
+	private int count;
+	/** True, if the buffer has been handed off and must be copied before writing. */
+	private boolean shared;
 
 	public DataStream() {
-		buffer = new ByteArrayOutputStream();
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a stream with the given initial capacity.
+	 *
+	 * @param capacity the expected size of the message, in bytes.
+	 */
+	public DataStream(@IntRange(from = 0) final int capacity) {
+		if (capacity < 0)
+			throw new IllegalArgumentException("Negative capacity: " + capacity);
+		buffer = new byte[capacity];
+	}
+
+	/**
+	 * Makes sure the buffer can hold the given number of bytes without growing.
+	 *
+	 * @param capacity the expected size of the message, in bytes.
+	 */
+	public void ensureCapacity(@IntRange(from = 0) final int capacity) {
+		if (capacity > buffer.length)
+			resize(capacity);
 	}
 
 	@SuppressWarnings("SimplifiableIfStatement")
@@ -50,7 +86,13 @@ public class DataStream {
 			return false;
 
 		final int len = Math.min(data.length - offset, length);
-		buffer.write(data, offset, len);
+		final int required = count + len;
+		if (required > buffer.length)
+			resize(Math.max(required, buffer.length << 1));
+		else if (shared && len > 0)
+			resize(buffer.length);
+		System.arraycopy(data, offset, buffer, count, len);
+		count = required;
 		return true;
 	}
 
@@ -58,18 +100,37 @@ public class DataStream {
 		return data != null && write(data.getValue());
 	}
 
+	/**
+	 * Discards all data written to the stream.
+	 */
+	public void reset() {
+		if (shared)
+			buffer = new byte[buffer.length];
+		shared = false;
+		count = 0;
+	}
+
 	@IntRange(from = 0)
 	public int size() {
-		return buffer.size();
+		return count;
 	}
 
 	@NonNull
 	public byte[] toByteArray() {
-		return buffer.toByteArray();
+		if (count == buffer.length) {
+			shared = true;
+			return buffer;
+		}
+		return Arrays.copyOf(buffer, count);
 	}
 
 	@NonNull
 	public Data toData() {
-		return new Data(buffer.toByteArray());
+		return new Data(toByteArray());
+	}
+
+	private void resize(final int capacity) {
+		buffer = Arrays.copyOf(buffer, capacity);
+		shared = false;
 	}
 }
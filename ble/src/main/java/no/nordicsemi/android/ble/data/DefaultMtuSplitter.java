@@ -26,10 +26,12 @@ import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.nio.ByteBuffer;
+
 /**
  * Splits the message into at-most MTU-3 size packets.
  */
-public final class DefaultMtuSplitter implements DataSplitter {
+public final class DefaultMtuSplitter implements ByteBufferSplitter, OffsetDataSplitter {
 
 	@Nullable
 	@Override
@@ -46,4 +48,33 @@ public final class DefaultMtuSplitter implements DataSplitter {
 		System.arraycopy(message, offset, data, 0, length);
 		return data;
 	}
+
+	@Override
+	public boolean chunk(@NonNull final byte[] message,
+						 @IntRange(from = 0) final int index,
+						 @IntRange(from = 20) final int maxLength,
+						 @NonNull final ByteBuffer output) {
+		final int offset = index * maxLength;
+		final int length = Math.min(maxLength, message.length - offset);
+
+		if (length <= 0)
+			return false;
+
+		output.put(message, offset, length);
+		return true;
+	}
+
+	@Override
+	public int chunkAt(@NonNull final byte[] message,
+					   @IntRange(from = 0) final int offset,
+					   @IntRange(from = 20) final int maxLength,
+					   @NonNull final ByteBuffer output) {
+		final int length = Math.min(maxLength, message.length - offset);
+
+		if (length <= 0)
+			return -1;
+
+		output.put(message, offset, length);
+		return length;
+	}
 }
@@ -0,0 +1,112 @@
+package no.nordicsemi.android.ble.data;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * A splitter which compresses the message using the DEFLATE algorithm and cuts the compressed
+ * data into at-most MTU-3 size packets. The data are compressed while the packets are being
+ * sent, directly into the packet buffers.
+ * <p>
+ * The packets should be merged and decompressed using {@link InflateMerger} with the same
+ * format, or any zlib compatible implementation.
+ * <p>
+ * The splitter keeps the compression state between packets, therefore a new instance
+ * should be used for each request. Transfers using this splitter can't be resumed from
+ * a {@link no.nordicsemi.android.ble.ResumeToken}.
+ */
+@SuppressWarnings("unused")
+public final class DeflateSplitter implements ByteBufferSplitter {
+	@NonNull
+	private final Deflater deflater;
+	private int nextIndex;
+
+	/**
+	 * Creates a splitter using the default compression level and the zlib format, which
+	 * contains a header and the Adler-32 checksum.
+	 */
+	public DeflateSplitter() {
+		this(Deflater.DEFAULT_COMPRESSION, false);
+	}
+
+	/**
+	 * Creates a splitter.
+	 *
+	 * @param level  the compression level, from {@link Deflater#BEST_SPEED} to
+	 *               {@link Deflater#BEST_COMPRESSION}, or {@link Deflater#DEFAULT_COMPRESSION}.
+	 * @param nowrap if true, raw DEFLATE data are sent, without the zlib header and checksum.
+	 */
+	public DeflateSplitter(@IntRange(from = -1, to = 9) final int level, final boolean nowrap) {
+		this.deflater = new Deflater(level, nowrap);
+	}
+
+	@Nullable
+	@Override
+	public byte[] chunk(@NonNull final byte[] message,
+						@IntRange(from = 0) final int index,
+						@IntRange(from = 20) final int maxLength) {
+		start(message, index);
+		if (deflater.finished())
+			return null;
+
+		final byte[] packet = new byte[maxLength];
+		final int length = deflate(packet, 0, maxLength);
+		if (length == 0)
+			return null;
+		return length == maxLength ? packet : Arrays.copyOf(packet, length);
+	}
+
+	@Override
+	public boolean chunk(@NonNull final byte[] message,
+						 @IntRange(from = 0) final int index,
+						 @IntRange(from = 20) final int maxLength,
+						 @NonNull final ByteBuffer output) {
+		if (!output.hasArray()) {
+			final byte[] packet = chunk(message, index, maxLength);
+			if (packet == null)
+				return false;
+			output.put(packet);
+			return true;
+		}
+
+		start(message, index);
+		final int position = output.position();
+		final int length = deflate(output.array(), output.arrayOffset() + position,
+				Math.min(maxLength, output.remaining()));
+		output.position(position + length);
+		return length > 0;
+	}
+
+	/**
+	 * Starts compressing a new message when the first packet is requested.
+	 *
+	 * @throws IllegalStateException if packets are not requested one by one.
+	 */
+	private void start(@NonNull final byte[] message, final int index) {
+		if (index == 0) {
+			deflater.reset();
+			deflater.setInput(message);
+			deflater.finish();
+			nextIndex = 0;
+		}
+		if (index != nextIndex)
+			throw new IllegalStateException("Packet " + nextIndex + " expected, " + index + " requested");
+		nextIndex++;
+	}
+
+	private int deflate(@NonNull final byte[] output, final int offset, final int length) {
+		int produced = 0;
+		while (produced < length && !deflater.finished()) {
+			final int n = deflater.deflate(output, offset + produced, length - produced);
+			if (n == 0)
+				break;
+			produced += n;
+		}
+		return produced;
+	}
+}
@@ -0,0 +1,78 @@
+package no.nordicsemi.android.ble.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A data merger which decompresses packets compressed using the DEFLATE algorithm,
+ * e.g. with {@link DeflateSplitter}. The message is complete when the end of the
+ * compressed stream has been received.
+ * <p>
+ * Packets are decompressed as they are received, so only the decompressed message is kept
+ * in memory.
+ * <p>
+ * If the data can't be decompressed, the message is dropped and the next packet is expected
+ * to start a new message. Use the zlib format, which contains a checksum, to detect
+ * corrupted data.
+ */
+@SuppressWarnings("unused")
+public final class InflateMerger implements DataMerger {
+	private static final int BUFFER_SIZE = 512;
+
+	@NonNull
+	private final Inflater inflater;
+	@NonNull
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+
+	/**
+	 * Creates a merger expecting data in the zlib format.
+	 */
+	public InflateMerger() {
+		this(false);
+	}
+
+	/**
+	 * Creates a merger.
+	 *
+	 * @param nowrap if true, raw DEFLATE data are expected, without the zlib header and checksum.
+	 */
+	public InflateMerger(final boolean nowrap) {
+		this.inflater = new Inflater(nowrap);
+	}
+
+	@Override
+	public boolean merge(@NonNull final DataStream output, @Nullable final byte[] lastPacket, final int index) {
+		if (index == 0)
+			inflater.reset();
+		if (lastPacket == null || lastPacket.length == 0)
+			return false;
+
+		inflater.setInput(lastPacket);
+		try {
+			while (!inflater.finished() && !inflater.needsInput()) {
+				final int length = inflater.inflate(buffer);
+				// Preset dictionaries are not supported.
+				if (length == 0 && inflater.needsDictionary())
+					return drop(output);
+				output.write(buffer, 0, length);
+			}
+		} catch (final DataFormatException e) {
+			return drop(output);
+		}
+		return inflater.finished();
+	}
+
+	/**
+	 * Discards the message which could not be decompressed.
+	 *
+	 * @return False, as the message is not complete.
+	 */
+	private boolean drop(@NonNull final DataStream output) {
+		inflater.reset();
+		output.reset();
+		return false;
+	}
+}
@@ -1,42 +1,71 @@
 package no.nordicsemi.android.ble.data;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 /**
  * A data merger object that returns true when complete JSON has been received.
  * <p>
- * It will consume packets until the JSON object can be created.
+ * It will consume packets until the top level JSON object or array is closed. Packets are
+ * scanned once, byte by byte, tracking the nesting depth and whether the current byte is
+ * in a string or escaped. As all structural characters are ASCII and never occur within
+ * multi-byte UTF-8 sequences, characters may be split between packets.
+ * <p>
+ * The merger does not validate the JSON. Use {@link org.json.JSONObject} or
+ * {@link org.json.JSONArray} to parse the merged message.
  */
 public class JsonMerger implements DataMerger {
-	private String buffer = "";
+	/** The nesting depth of objects and arrays. */
+	private int depth;
+	private boolean started;
+	private boolean inString;
+	private boolean escaped;
 
 	@Override
 	public boolean merge(@NonNull final DataStream output, @Nullable final byte[] lastPacket, final int index) {
+		if (index == 0)
+			reset();
 		output.write(lastPacket);
+		if (lastPacket == null)
+			return false;
 
-		buffer += new String(lastPacket);
-		try {
-			new JSONObject(buffer);
-		} catch (final JSONException e) {
-			try {
-				new JSONArray(buffer);
-			} catch (final JSONException jsonException) {
-				return false;
+		for (final byte b : lastPacket) {
+			if (inString) {
+				if (escaped)
+					escaped = false;
+				else if (b == '\\')
+					escaped = true;
+				else if (b == '"')
+					inString = false;
+				continue;
+			}
+			switch (b) {
+				case '{', '[' -> {
+					depth++;
+					started = true;
+				}
+				// Closing brackets before the top level value has started are ignored.
+				case '}', ']' -> {
+					if (started)
+						depth--;
+				}
+				case '"' -> inString = true;
+			}
+			if (started && depth == 0) {
+				reset();
+				return true;
 			}
 		}
-		reset();
-		return true;
+		return false;
 	}
 
 	/**
 	 * Resets the merger so it can start merging from scratch.
 	 */
 	public void reset() {
-		buffer = "";
+		depth = 0;
+		started = false;
+		inString = false;
+		escaped = false;
 	}
 }
@@ -0,0 +1,126 @@
+package no.nordicsemi.android.ble.data;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The format of the length header of a frame, used by {@link LengthPrefixSplitter}
+ * and {@link LengthPrefixMerger}.
+ * <p>
+ * The length may be encoded as a variable-length unsigned integer (7 bits per byte, least
+ * significant group first, with the highest bit set in all bytes except the last), or as
+ * an unsigned integer of fixed width. The length does not include the header.
+ */
+public final class LengthPrefix {
+	private static final int MAX_VARINT_LENGTH = 5;
+
+	/** The header length, or 0 for a varint. */
+	private final int size;
+	private final boolean bigEndian;
+
+	private LengthPrefix(final int size, final boolean bigEndian) {
+		this.size = size;
+		this.bigEndian = bigEndian;
+	}
+
+	/**
+	 * Returns the varint header. Messages shorter than 128 bytes have a 1-byte header,
+	 * and shorter than 16384 bytes a 2-byte header.
+	 *
+	 * @return The header format.
+	 */
+	@NonNull
+	public static LengthPrefix varint() {
+		return new LengthPrefix(0, false);
+	}
+
+	/**
+	 * Returns a fixed width header.
+	 *
+	 * @param formatType the format of the length, one of {@link Data#FORMAT_UINT8},
+	 *                   {@link Data#FORMAT_UINT16_LE}, {@link Data#FORMAT_UINT16_BE},
+	 *                   {@link Data#FORMAT_UINT24_LE}, {@link Data#FORMAT_UINT24_BE},
+	 *                   {@link Data#FORMAT_UINT32_LE} or {@link Data#FORMAT_UINT32_BE}.
+	 *                   With {@link Data#FORMAT_UINT32_LE} and {@link Data#FORMAT_UINT32_BE}
+	 *                   messages are limited to {@link Integer#MAX_VALUE} bytes.
+	 * @return The header format.
+	 */
+	@NonNull
+	public static LengthPrefix fixed(@Data.IntFormat final int formatType) {
+		return switch (formatType) {
+			case Data.FORMAT_UINT8, Data.FORMAT_UINT16_LE, Data.FORMAT_UINT16_BE,
+				 Data.FORMAT_UINT24_LE, Data.FORMAT_UINT24_BE,
+				 Data.FORMAT_UINT32_LE, Data.FORMAT_UINT32_BE ->
+					new LengthPrefix(formatType & 0xF, (formatType & 0x100) != 0);
+			default -> throw new IllegalArgumentException("Unsupported format: " + formatType);
+		};
+	}
+
+	/**
+	 * Returns the length of the header for a message of given length.
+	 */
+	int getHeaderLength(@IntRange(from = 0) final int length) {
+		if (size > 0)
+			return size;
+		int bytes = 1;
+		for (int value = length >>> 7; value != 0; value >>>= 7)
+			bytes++;
+		return bytes;
+	}
+
+	/**
+	 * Returns whether a message with given length can be encoded.
+	 */
+	boolean canEncode(@IntRange(from = 0) final int length) {
+		return size == 0 || size == 4 || length < 1 << (size * 8);
+	}
+
+	/**
+	 * Writes the header to the buffer.
+	 *
+	 * @param length the length of the message.
+	 * @param output the buffer.
+	 */
+	void write(@IntRange(from = 0) final int length, @NonNull final ByteBuffer output) {
+		if (size == 0) {
+			int value = length;
+			while ((value & ~0x7F) != 0) {
+				output.put((byte) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			output.put((byte) value);
+			return;
+		}
+		for (int i = 0; i < size; ++i) {
+			final int shift = 8 * (bigEndian ? size - 1 - i : i);
+			output.put((byte) (length >>> shift));
+		}
+	}
+
+	/**
+	 * Adds the byte to the partially decoded length.
+	 *
+	 * @param value the length decoded so far, initially 0.
+	 * @param index the index of the byte in the header.
+	 * @param b     the byte.
+	 * @return The length decoded so far.
+	 */
+	long decode(final long value, final int index, final byte b) {
+		if (size == 0)
+			return value | (long) (b & 0x7F) << (7 * index);
+		if (bigEndian)
+			return value << 8 | (b & 0xFF);
+		return value | (long) (b & 0xFF) << (8 * index);
+	}
+
+	/**
+	 * Returns whether the byte with given index is the last byte of the header.
+	 */
+	boolean isLast(final int index, final byte b) {
+		if (size == 0)
+			return (b & 0x80) == 0 || index == MAX_VARINT_LENGTH - 1;
+		return index == size - 1;
+	}
+}
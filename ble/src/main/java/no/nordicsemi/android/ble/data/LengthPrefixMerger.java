@@ -0,0 +1,110 @@
+package no.nordicsemi.android.ble.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A merger of frames prefixed with their length, e.g. split using {@link LengthPrefixSplitter}.
+ * <p>
+ * Packet content is written directly to the output stream, without intermediate buffers,
+ * and the stream is presized to the length from the header.
+ * A frame may be split into any number of packets, including its header, and a packet
+ * may contain the end of one frame and the beginning of the next ones. In that case, bytes
+ * following the complete frame are kept and merged into the next message, see
+ * {@link #hasPendingData()}.
+ */
+public final class LengthPrefixMerger implements DataMerger {
+	/** Limits the memory allocated up front in case of a corrupted header. */
+	private static final int MAX_CAPACITY_HINT = 1 << 20;
+
+	@NonNull
+	private final LengthPrefix prefix;
+	/** Packets, or their remaining parts, not merged yet. */
+	private final Deque<byte[]> pending = new ArrayDeque<>();
+	/** The offset in the first pending packet. */
+	private int offset;
+	/** The length of the current frame, or -1 if the header is being read. */
+	private long expected = -1;
+	private long received;
+	private long header;
+	private int headerIndex;
+
+	/**
+	 * Creates a merger using a varint length header.
+	 */
+	public LengthPrefixMerger() {
+		this(LengthPrefix.varint());
+	}
+
+	/**
+	 * Creates a merger using the given length header.
+	 *
+	 * @param prefix the length header format.
+	 */
+	public LengthPrefixMerger(@NonNull final LengthPrefix prefix) {
+		this.prefix = prefix;
+	}
+
+	@Override
+	public boolean merge(@NonNull final DataStream output, @Nullable final byte[] lastPacket, final int index) {
+		if (lastPacket != null && lastPacket.length > 0)
+			pending.add(lastPacket);
+
+		byte[] packet;
+		while ((packet = pending.peek()) != null) {
+			while (offset < packet.length) {
+				if (expected < 0) {
+					final byte b = packet[offset++];
+					header = prefix.decode(header, headerIndex, b);
+					if (prefix.isLast(headerIndex++, b)) {
+						expected = header;
+						received = 0;
+						output.ensureCapacity(output.size() + (int) Math.min(expected, MAX_CAPACITY_HINT));
+					}
+				} else {
+					final int length = (int) Math.min(expected - received, packet.length - offset);
+					output.write(packet, offset, length);
+					offset += length;
+					received += length;
+				}
+				if (expected >= 0 && received == expected) {
+					resetFrame();
+					if (offset == packet.length)
+						poll();
+					return true;
+				}
+			}
+			poll();
+		}
+		return false;
+	}
+
+	@Override
+	public boolean hasPendingData() {
+		return !pending.isEmpty();
+	}
+
+	/**
+	 * Resets the merger so it can start merging from scratch.
+	 */
+	public void reset() {
+		pending.clear();
+		offset = 0;
+		resetFrame();
+	}
+
+	private void resetFrame() {
+		expected = -1;
+		received = 0;
+		header = 0;
+		headerIndex = 0;
+	}
+
+	private void poll() {
+		pending.poll();
+		offset = 0;
+	}
+}
@@ -0,0 +1,84 @@
+package no.nordicsemi.android.ble.data;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Splits the message into packets, prepending the length of the message to the first one.
+ * The message is copied directly into the packets, without intermediate buffers.
+ * <p>
+ * Use {@link LengthPrefixMerger} with the same {@link LengthPrefix} to merge the packets.
+ */
+public final class LengthPrefixSplitter implements ByteBufferSplitter {
+	@NonNull
+	private final LengthPrefix prefix;
+
+	/**
+	 * Creates a splitter using a varint length header.
+	 */
+	public LengthPrefixSplitter() {
+		this(LengthPrefix.varint());
+	}
+
+	/**
+	 * Creates a splitter using the given length header.
+	 *
+	 * @param prefix the length header format.
+	 */
+	public LengthPrefixSplitter(@NonNull final LengthPrefix prefix) {
+		this.prefix = prefix;
+	}
+
+	@Nullable
+	@Override
+	public byte[] chunk(@NonNull final byte[] message,
+						@IntRange(from = 0) final int index,
+						@IntRange(from = 20) final int maxLength) {
+		final int length = getPacketLength(message, index, maxLength);
+		if (length < 0)
+			return null;
+		final byte[] packet = new byte[length];
+		chunk(message, index, maxLength, ByteBuffer.wrap(packet));
+		return packet;
+	}
+
+	@Override
+	public boolean chunk(@NonNull final byte[] message,
+						 @IntRange(from = 0) final int index,
+						 @IntRange(from = 20) final int maxLength,
+						 @NonNull final ByteBuffer output) {
+		final int length = getPacketLength(message, index, maxLength);
+		if (length < 0)
+			return false;
+		if (index == 0) {
+			final int headerLength = prefix.getHeaderLength(message.length);
+			prefix.write(message.length, output);
+			output.put(message, 0, length - headerLength);
+		} else {
+			output.put(message, getOffset(message, index, maxLength), length);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the length of the index'th packet, including the header, or -1 if there are
+	 * no more packets.
+	 */
+	private int getPacketLength(@NonNull final byte[] message, final int index, final int maxLength) {
+		if (!prefix.canEncode(message.length))
+			throw new IllegalArgumentException("Message too long: " + message.length);
+		if (index == 0) {
+			final int headerLength = prefix.getHeaderLength(message.length);
+			return headerLength + Math.min(maxLength - headerLength, message.length);
+		}
+		final int length = Math.min(maxLength, message.length - getOffset(message, index, maxLength));
+		return length > 0 ? length : -1;
+	}
+
+	private int getOffset(@NonNull final byte[] message, final int index, final int maxLength) {
+		return maxLength - prefix.getHeaderLength(message.length) + (index - 1) * maxLength;
+	}
+}
@@ -0,0 +1,36 @@
+package no.nordicsemi.android.ble.data;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link DataSplitter} which cuts packets starting at a given offset of the message,
+ * instead of a packet index.
+ * <p>
+ * As the position of a packet does not depend on the length of the previous ones,
+ * a {@link no.nordicsemi.android.ble.WriteRequest} using such splitter may change the packet
+ * length during the transfer, e.g. after the MTU has changed, and may resume an interrupted
+ * transfer from the last acknowledged offset using a {@link no.nordicsemi.android.ble.ResumeToken}.
+ */
+public interface OffsetDataSplitter extends DataSplitter {
+
+	/**
+	 * The implementation should write a packet containing the message starting at the given
+	 * offset into the output buffer, starting at its current position. The packet must not be
+	 * longer than maxLength. Headers added by the splitter are allowed, therefore the number
+	 * of message bytes included in the packet must be returned.
+	 *
+	 * @param message   the full message to be chunk.
+	 * @param offset    offset of the first byte of the message not sent yet.
+	 * @param maxLength maximum length of the packet. Equals to MTU-3, or less.
+	 * @param output    the buffer to write the packet to, with at least maxLength bytes remaining.
+	 * @return The number of bytes of the message included in the packet, or -1 if the whole
+	 * message was already split.
+	 */
+	int chunkAt(@NonNull final byte[] message,
+				@IntRange(from = 0) final int offset,
+				@IntRange(from = 20) final int maxLength,
+				@NonNull final ByteBuffer output);
+}
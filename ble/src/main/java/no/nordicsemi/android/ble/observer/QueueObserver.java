@@ -0,0 +1,23 @@
+package no.nordicsemi.android.ble.observer;
+
+import androidx.annotation.IntRange;
+
+/**
+ * The queue observer may be used by producers of requests to throttle themselves before
+ * the request queue becomes full.
+ *
+ * @see no.nordicsemi.android.ble.BleManager#setQueueObserver(QueueObserver)
+ * @see no.nordicsemi.android.ble.BleManager#setRequestQueueCapacity(int, int)
+ */
+public interface QueueObserver {
+	/**
+	 * Called when a request was added to or removed from the queue.
+	 * <p>
+	 * This method is called on the thread which changed the queue, which may be the thread
+	 * enqueueing a request, or the one executing them. It should return quickly and must not
+	 * block, nor enqueue requests.
+	 *
+	 * @param depth the number of requests waiting in the queue.
+	 */
+	void onQueueDepthChanged(@IntRange(from = 0) final int depth);
+}
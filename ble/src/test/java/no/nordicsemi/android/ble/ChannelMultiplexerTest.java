@@ -0,0 +1,203 @@
+package no.nordicsemi.android.ble;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import no.nordicsemi.android.ble.callback.FailCallback;
+import no.nordicsemi.android.ble.callback.SuccessCallback;
+import no.nordicsemi.android.ble.data.Data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChannelMultiplexerTest {
+	/** Packets handed to the link, with callbacks to be called when sent. */
+	private final Deque<Object[]> queue = new ArrayDeque<>();
+	/** Channel IDs of sent packets. */
+	private final List<Integer> sent = new ArrayList<>();
+	private final List<String> received = new ArrayList<>();
+	private ChannelMultiplexer sender;
+	private ChannelMultiplexer receiver;
+
+	private final CallbackHandler handler = new CallbackHandler() {
+		@Override
+		public void post(@NonNull final Runnable r) {
+			r.run();
+		}
+
+		@Override
+		public void postDelayed(@NonNull final Runnable r, final long delayMillis) {
+			r.run();
+		}
+
+		@Override
+		public void removeCallbacks(@NonNull final Runnable r) {
+			// do nothing
+		}
+	};
+
+	@Before
+	public void setUp() {
+		sender = new ChannelMultiplexer(new ChannelMultiplexer.Link() {
+			@Override
+			public void send(@NonNull final byte[] packet,
+							 @NonNull final SuccessCallback sent, @NonNull final FailCallback failed) {
+				queue.add(new Object[] { packet, sent, failed });
+			}
+
+			@Override
+			public int getMaxPacketLength() {
+				return 20;
+			}
+		}, handler);
+		receiver = new ChannelMultiplexer(new ChannelMultiplexer.Link() {
+			@Override
+			public void send(@NonNull final byte[] packet,
+							 @NonNull final SuccessCallback sent, @NonNull final FailCallback failed) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public int getMaxPacketLength() {
+				return 20;
+			}
+		}, handler);
+	}
+
+	/**
+	 * Sends the given number of packets, delivering them to the receiver.
+	 */
+	private void transmit(final int packets) {
+		for (int i = 0; i < packets && !queue.isEmpty(); ++i) {
+			final Object[] item = queue.poll();
+			final byte[] packet = (byte[]) item[0];
+			// Packets, including the header, must fit in the default ATT MTU.
+			assertTrue(packet.length <= 20);
+			sent.add(packet[0] & ChannelMultiplexer.MAX_CHANNEL_ID);
+			receiver.onPacketReceived(null, new Data(packet));
+			((SuccessCallback) item[1]).onRequestCompleted(null);
+		}
+	}
+
+	/**
+	 * Fails sending the next packet.
+	 */
+	private void fail() {
+		final Object[] item = queue.poll();
+		final byte[] packet = (byte[]) item[0];
+		sent.add(packet[0] & ChannelMultiplexer.MAX_CHANNEL_ID);
+		((FailCallback) item[2]).onRequestFailed(null, FailCallback.REASON_REQUEST_FAILED);
+	}
+
+	private static byte[] message(final int length, final int seed) {
+		final byte[] message = new byte[length];
+		for (int i = 0; i < length; ++i)
+			message[i] = (byte) (i + seed);
+		return message;
+	}
+
+	@Test
+	public void send_interleaved() {
+		final List<byte[]> messages = new ArrayList<>();
+		for (int id = 0; id < 3; ++id) {
+			final int channel = id;
+			messages.add(message(100 + id * 30, id));
+			receiver.channel(id).with((device, data) -> {
+				assertArrayEquals(messages.get(channel), data.getValue());
+				received.add("" + channel);
+			});
+			sender.channel(id).send(messages.get(id));
+		}
+		receiver.channel(3).with((device, data) -> received.add("empty"));
+		sender.channel(3).send(new byte[0]);
+		transmit(100);
+
+		assertTrue(queue.isEmpty());
+		// The short message is not delayed by the longer ones.
+		assertEquals(List.of("empty", "0", "1", "2"), received);
+		// Packets of the channels are interleaved, after 2 packets of channel 0 sent
+		// before other channels had any data.
+		assertEquals(List.of(0, 0, 1, 2, 3, 0, 1, 2), sent.subList(0, 8));
+	}
+
+	@Test
+	public void send_weighted() {
+		sender.channel(0).send(message(2000, 0));
+		sender.channel(1).weight(3).send(message(2000, 0));
+		transmit(42);
+
+		// The first 2 packets of channel 0 were sent before channel 1 had any data.
+		final long high = sent.subList(2, 42).stream().filter(id -> id == 1).count();
+		assertEquals(30, high, 1);
+	}
+
+	@Test
+	public void send_lowLatency() {
+		final boolean[] completed = new boolean[1];
+		sender.channel(0).send(message(5000, 0));
+		transmit(50);
+		sender.channel(1).send(message(30, 0), device -> completed[0] = true);
+		// Packets already handed to the queue go first, then the 2 packets of the new message
+		// alternate with those of channel 0.
+		transmit(ChannelMultiplexer.PACKETS_IN_FLIGHT + 3);
+		assertTrue(completed[0]);
+		assertEquals(0, sender.channel(1).getPendingMessages());
+		assertEquals(1, sender.channel(0).getPendingMessages());
+	}
+
+	@Test
+	public void send_failed() {
+		final boolean[] completed = new boolean[3];
+		sender.channel(0).send(message(100, 0), device -> completed[0] = true);
+		sender.channel(1).send(message(30, 0), device -> completed[1] = true);
+		// The first packet of channel 0 fails, the second one is already in flight.
+		fail();
+		assertEquals(0, sender.channel(0).getPendingMessages());
+		transmit(100);
+
+		// The rest of the failed message is dropped, other channels are not affected.
+		assertTrue(queue.isEmpty());
+		assertEquals(List.of(0, 0, 1, 1), sent);
+		assertFalse(completed[0]);
+		assertTrue(completed[1]);
+
+		// The next message on the channel is sent normally.
+		sender.channel(0).send(message(10, 0), device -> completed[2] = true);
+		transmit(1);
+		assertTrue(completed[2]);
+	}
+
+	@Test
+	public void send_lastPacketFailed() {
+		final boolean[] completed = new boolean[1];
+		sender.channel(0).send(message(30, 0), device -> completed[0] = true);
+		// The last packet is already in flight when the first one fails.
+		fail();
+		transmit(1);
+		assertTrue(queue.isEmpty());
+		assertFalse(completed[0]);
+	}
+
+	@Test
+	public void receive_merger() {
+		receiver.channel(5)
+				.merge((output, lastPacket, index) -> {
+					output.write(lastPacket);
+					return index == 1;
+				})
+				.with((device, data) -> received.add(data.toString()));
+		sender.channel(5).send(new byte[] { 1, 2 });
+		sender.channel(5).send(new byte[] { 3 });
+		transmit(10);
+		assertEquals(List.of("(0x) 01-02-03"), received);
+	}
+}
@@ -0,0 +1,88 @@
+package no.nordicsemi.android.ble;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConnectionAdmissionControllerTest {
+	private long now = 1_000_000;
+	private final List<String> admitted = new ArrayList<>();
+
+	private ConnectionAdmissionController.Ticket request(final ConnectionAdmissionController controller,
+														 final String address) {
+		return controller.request(address, () -> admitted.add(address));
+	}
+
+	@Test
+	public void request_limitsPendingConnections() {
+		final ConnectionAdmissionController controller = new ConnectionAdmissionController(2, () -> now);
+		final ConnectionAdmissionController.Ticket a = request(controller, "A");
+		final ConnectionAdmissionController.Ticket b = request(controller, "B");
+		final ConnectionAdmissionController.Ticket c = request(controller, "C");
+		assertEquals(List.of("A", "B"), admitted);
+		assertTrue(a.isAdmitted());
+		assertFalse(c.isAdmitted());
+		assertEquals(2, controller.getPendingConnectionCount());
+		assertEquals(1, controller.getWaitingConnectionCount());
+
+		b.release();
+		assertEquals(List.of("A", "B", "C"), admitted);
+		assertTrue(c.isAdmitted());
+		assertEquals(2, controller.getPendingConnectionCount());
+		assertEquals(0, controller.getWaitingConnectionCount());
+
+		// Releasing twice must not free another slot.
+		b.release();
+		assertEquals(2, controller.getPendingConnectionCount());
+	}
+
+	@Test
+	public void release_waitingTicketIsRemoved() {
+		final ConnectionAdmissionController controller = new ConnectionAdmissionController(1, () -> now);
+		final ConnectionAdmissionController.Ticket a = request(controller, "A");
+		final ConnectionAdmissionController.Ticket b = request(controller, "B");
+		request(controller, "C");
+
+		b.release();
+		a.release();
+		assertEquals(List.of("A", "C"), admitted);
+		assertEquals(1, controller.getPendingConnectionCount());
+	}
+
+	@Test
+	public void release_prefersRecentStrongRssi() {
+		final ConnectionAdmissionController controller = new ConnectionAdmissionController(1, () -> now);
+		final ConnectionAdmissionController.Ticket first = request(controller, "first");
+		request(controller, "noRssi");
+		request(controller, "weak");
+		request(controller, "strong");
+		request(controller, "stale");
+
+		controller.reportRssi("stale", -30);
+		now += ConnectionAdmissionController.RSSI_VALIDITY + 1;
+		controller.reportRssi("weak", -90);
+		controller.reportRssi("strong", -50);
+
+		first.release();
+		assertEquals("strong", admitted.get(1));
+	}
+
+	@Test
+	public void release_fifoWithoutRssi() {
+		final ConnectionAdmissionController controller = new ConnectionAdmissionController(1, () -> now);
+		final List<ConnectionAdmissionController.Ticket> tickets = new ArrayList<>();
+		for (final String address : List.of("A", "B", "C", "D")) {
+			tickets.add(request(controller, address));
+		}
+		for (final ConnectionAdmissionController.Ticket ticket : tickets) {
+			ticket.release();
+		}
+		assertEquals(List.of("A", "B", "C", "D"), admitted);
+		assertEquals(0, controller.getPendingConnectionCount());
+	}
+}
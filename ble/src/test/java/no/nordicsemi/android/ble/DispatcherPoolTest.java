@@ -0,0 +1,92 @@
+package no.nordicsemi.android.ble;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class DispatcherPoolTest {
+	private final List<String> started = new ArrayList<>();
+	private final List<String> quit = new ArrayList<>();
+
+	private final DispatcherPool.WorkerFactory<String> factory = new DispatcherPool.WorkerFactory<>() {
+		@NonNull
+		@Override
+		public String start(final int index) {
+			final String worker = "BleDispatcher-" + index;
+			started.add(worker);
+			return worker;
+		}
+
+		@Override
+		public void quit(@NonNull final String worker) {
+			quit.add(worker);
+		}
+	};
+
+	@Test
+	public void acquire_leastLoaded() {
+		final DispatcherPool.Balancer<String> balancer = new DispatcherPool.Balancer<>(3, factory);
+		final List<Integer> assigned = new ArrayList<>();
+		for (int i = 0; i < 7; ++i)
+			assigned.add(balancer.acquire());
+
+		assertEquals(List.of(0, 1, 2, 0, 1, 2, 0), assigned);
+		assertArrayEquals(new int[] { 3, 2, 2 }, balancer.getLoad());
+		// Threads are started only once, when first needed.
+		assertEquals(List.of("BleDispatcher-0", "BleDispatcher-1", "BleDispatcher-2"), started);
+		assertEquals("BleDispatcher-1", balancer.get(1));
+	}
+
+	@Test
+	public void acquire_startsLazily() {
+		final DispatcherPool.Balancer<String> balancer = new DispatcherPool.Balancer<>(4, factory);
+		balancer.release(balancer.acquire());
+		balancer.acquire();
+
+		// The released thread is reused, others are not started.
+		assertEquals(List.of("BleDispatcher-0"), started);
+		assertArrayEquals(new int[] { 1, 0, 0, 0 }, balancer.getLoad());
+	}
+
+	@Test
+	public void release() {
+		final DispatcherPool.Balancer<String> balancer = new DispatcherPool.Balancer<>(2, factory);
+		for (int i = 0; i < 4; ++i)
+			balancer.acquire();
+		balancer.release(1);
+		balancer.release(1);
+		// Releasing more than acquired does not make the load negative.
+		balancer.release(1);
+		assertArrayEquals(new int[] { 2, 0 }, balancer.getLoad());
+
+		// New users are assigned to the thread with the lowest load.
+		assertEquals(1, balancer.acquire());
+		assertEquals(1, balancer.acquire());
+		assertEquals(0, balancer.acquire());
+		assertEquals(2, started.size());
+	}
+
+	@Test
+	public void quit() {
+		final DispatcherPool.Balancer<String> balancer = new DispatcherPool.Balancer<>(3, factory);
+		balancer.acquire();
+		balancer.acquire();
+		balancer.quit();
+
+		// Only started threads are quit.
+		assertEquals(List.of("BleDispatcher-0", "BleDispatcher-1"), quit);
+		assertThrows(IllegalStateException.class, balancer::acquire);
+	}
+
+	@Test
+	public void constructor_invalidSize() {
+		assertThrows(IllegalArgumentException.class, () -> new DispatcherPool.Balancer<>(0, factory));
+	}
+}
@@ -0,0 +1,35 @@
+package no.nordicsemi.android.ble;
+
+import android.bluetooth.BluetoothDevice;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LinkPacerTest {
+	@Test
+	public void getMaxLength_limitedByConnectionEvent() {
+		final LinkPacer pacer = new LinkPacer();
+		assertEquals(244, pacer.getMaxLength(244));
+
+		// 7.5 ms on LE Coded allows much shorter packets.
+		pacer.setInterval(6);
+		pacer.setPhy(BluetoothDevice.PHY_LE_CODED);
+		assertEquals(85, pacer.getMaxLength(244));
+
+		pacer.setPhy(BluetoothDevice.PHY_LE_1M);
+		assertEquals(244, pacer.getMaxLength(244));
+	}
+
+	@Test
+	public void reset() {
+		final LinkPacer pacer = new LinkPacer();
+		assertFalse(pacer.setInterval(LinkPacer.DEFAULT_INTERVAL));
+		assertTrue(pacer.setInterval(6));
+		assertTrue(pacer.setPhy(BluetoothDevice.PHY_LE_CODED));
+		pacer.reset();
+		assertEquals(244, pacer.getMaxLength(244));
+	}
+}
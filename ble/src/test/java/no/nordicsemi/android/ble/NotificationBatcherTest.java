@@ -0,0 +1,96 @@
+package no.nordicsemi.android.ble;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import no.nordicsemi.android.ble.data.Data;
+
+import static org.junit.Assert.assertEquals;
+
+public class NotificationBatcherTest {
+	private final List<Runnable> posted = new ArrayList<>();
+	private final List<Runnable> delayed = new ArrayList<>();
+	private final List<List<Data>> batches = new ArrayList<>();
+
+	private final CallbackHandler handler = new CallbackHandler() {
+		@Override
+		public void post(@NonNull final Runnable r) {
+			posted.add(r);
+		}
+
+		@Override
+		public void postDelayed(@NonNull final Runnable r, final long delayMillis) {
+			delayed.add(r);
+		}
+
+		@Override
+		public void removeCallbacks(@NonNull final Runnable r) {
+			// not used
+		}
+	};
+
+	private static void runAll(@NonNull final List<Runnable> runnables) {
+		final List<Runnable> copy = new ArrayList<>(runnables);
+		runnables.clear();
+		copy.forEach(Runnable::run);
+	}
+
+	private void offer(@NonNull final ValueChangedCallback callback, final int count) {
+		for (int i = 0; i < count; ++i)
+			callback.notifyValueChanged(null, new byte[] { (byte) i });
+	}
+
+	@Test
+	public void batch_window() {
+		final ValueChangedCallback callback = new ValueChangedCallback(handler)
+				.batch((device, packets) -> batches.add(packets), 20, 64);
+		offer(callback, 10);
+		// Only one timer is started for the batch.
+		assertEquals(1, delayed.size());
+		assertEquals(0, posted.size());
+
+		runAll(delayed);
+		runAll(posted);
+		assertEquals(1, batches.size());
+		assertEquals(10, batches.get(0).size());
+		assertEquals("(0x) 09", batches.get(0).get(9).toString());
+
+		offer(callback, 1);
+		assertEquals(1, delayed.size());
+	}
+
+	@Test
+	public void batch_maxPackets() {
+		final ValueChangedCallback callback = new ValueChangedCallback(handler)
+				.batch((device, packets) -> batches.add(packets), 20, 4);
+		offer(callback, 6);
+		// The full batch is posted immediately.
+		assertEquals(1, posted.size());
+		runAll(posted);
+		assertEquals(1, batches.size());
+		assertEquals(6, batches.get(0).size());
+
+		// The timer of the first batch delivers the packets received afterwards earlier.
+		offer(callback, 2);
+		runAll(delayed);
+		runAll(posted);
+		assertEquals(2, batches.size());
+		assertEquals(2, batches.get(1).size());
+	}
+
+	@Test
+	public void batch_noWindow() {
+		final ValueChangedCallback callback = new ValueChangedCallback(handler)
+				.batch((device, packets) -> batches.add(packets), 0, 64);
+		offer(callback, 5);
+		assertEquals(0, delayed.size());
+		assertEquals(1, posted.size());
+		runAll(posted);
+		assertEquals(1, batches.size());
+		assertEquals(5, batches.get(0).size());
+	}
+}
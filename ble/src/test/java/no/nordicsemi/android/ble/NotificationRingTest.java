@@ -0,0 +1,92 @@
+package no.nordicsemi.android.ble;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NotificationRingTest {
+	private final List<Runnable> posted = new ArrayList<>();
+	private final CallbackHandler handler = new CallbackHandler() {
+		@Override
+		public void post(@NonNull final Runnable r) {
+			posted.add(r);
+		}
+
+		@Override
+		public void postDelayed(@NonNull final Runnable r, final long delayMillis) {
+			// not used
+		}
+
+		@Override
+		public void removeCallbacks(@NonNull final Runnable r) {
+			// not used
+		}
+	};
+
+	@Test
+	public void offer_batched() {
+		final NotificationRing ring = new NotificationRing(4);
+		final List<String> received = new ArrayList<>();
+		for (int i = 0; i < 5; ++i)
+			assertEquals(i < 4, ring.offer(handler, null, new byte[] { (byte) i }, (device, data) -> received.add(data.toString())));
+
+		// A single drain is posted for all packets, and the packet over capacity is dropped.
+		assertEquals(1, posted.size());
+		assertEquals(1, ring.getDroppedPackets());
+		posted.remove(0).run();
+		assertEquals(List.of("(0x) 00", "(0x) 01", "(0x) 02", "(0x) 03"), received);
+
+		// The buffer is reused after the drain.
+		assertTrue(ring.offer(handler, null, new byte[] { 5, 6 }, (device, data) -> received.add(data.toString())));
+		assertEquals(1, posted.size());
+		posted.remove(0).run();
+		assertEquals("(0x) 05-06", received.get(4));
+	}
+
+	/**
+	 * Simulates a burst of 4 notifications between drains on the callback thread.
+	 */
+	private void notifyAndDrain(@NonNull final ValueChangedCallback callback,
+								@NonNull final byte[] packet, final int i) {
+		callback.notifyValueChanged(null, packet);
+		if (i % 4 == 3) {
+			for (int j = 0; j < posted.size(); ++j)
+				posted.get(j).run();
+			posted.clear();
+		}
+	}
+
+	@Test
+	public void notifyValueChanged_allocationFree() {
+		final com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final long thread = Thread.currentThread().getId();
+		final int[] sum = new int[1];
+		final ValueChangedCallback callback = new ValueChangedCallback(handler)
+				.ringBuffer(16)
+				.with((device, data) -> sum[0] += data.getValue()[0]);
+		final byte[] packet = new byte[20];
+		packet[0] = 1;
+
+		// Warm up, so that all slots are allocated and the code is compiled.
+		for (int i = 0; i < 100_000; ++i)
+			notifyAndDrain(callback, packet, i);
+
+		final long before = threads.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < 100_000; ++i)
+			notifyAndDrain(callback, packet, i);
+		final long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+		assertEquals(200_000, sum[0]);
+		// Allow for a few bytes allocated by the measurement itself.
+		assertFalse("Allocated " + allocated + " bytes", allocated > 1024);
+	}
+}
@@ -0,0 +1,64 @@
+package no.nordicsemi.android.ble;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProgressAggregatorTest {
+	private long now = 1_000_000;
+	private final List<String> events = new ArrayList<>();
+	private final CallbackHandler handler = new CallbackHandler() {
+		@Override
+		public void post(@NonNull final Runnable r) {
+			r.run();
+		}
+
+		@Override
+		public void postDelayed(@NonNull final Runnable r, final long delayMillis) {
+			r.run();
+		}
+
+		@Override
+		public void removeCallbacks(@NonNull final Runnable r) {
+			// do nothing
+		}
+	};
+
+	private ProgressAggregator create(final long interval, final int byteStep) {
+		return new ProgressAggregator((device, packets, bytes, complete) ->
+				events.add(packets + ":" + bytes + (complete ? ":done" : "")),
+				interval, byteStep, () -> now);
+	}
+
+	@Test
+	public void onPacket_interval() {
+		final ProgressAggregator progress = create(100, 0);
+		for (int i = 0; i < 100; ++i) {
+			now += 10;
+			progress.onPacket(handler, null, 20, i == 99);
+		}
+		// The first packet is reported immediately, then every 10 packets, and the last one.
+		assertEquals(11, events.size());
+		assertEquals("1:20", events.get(0));
+		assertEquals("11:220", events.get(1));
+		assertEquals("100:2000:done", events.get(10));
+	}
+
+	@Test
+	public void onPacket_byteStep() {
+		final ProgressAggregator progress = create(0, 100);
+		for (int i = 0; i < 12; ++i) {
+			progress.onPacket(handler, null, 20, i == 11);
+		}
+		assertEquals(List.of("5:100", "10:200", "12:240:done"), events);
+
+		// The next transfer is counted from the beginning.
+		progress.onPacket(handler, null, 20, true);
+		assertEquals("1:20:done", events.get(3));
+	}
+}
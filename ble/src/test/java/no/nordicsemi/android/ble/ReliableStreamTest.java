@@ -0,0 +1,209 @@
+package no.nordicsemi.android.ble;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import no.nordicsemi.android.ble.callback.FailCallback;
+import no.nordicsemi.android.ble.data.Data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReliableStreamTest {
+	/** Packets in the air, with the stream that will receive them. */
+	private final Deque<Object[]> air = new ArrayDeque<>();
+	private final List<Runnable> timers = new ArrayList<>();
+	/** Delays of all posted timers, in order. */
+	private final List<Long> delays = new ArrayList<>();
+	private long now;
+	private int sent;
+	/** Every n-th packet is lost, 0 for none. */
+	private int lossInterval;
+	private boolean linkDown;
+
+	private final CallbackHandler handler = new CallbackHandler() {
+		@Override
+		public void post(@NonNull final Runnable r) {
+			r.run();
+		}
+
+		@Override
+		public void postDelayed(@NonNull final Runnable r, final long delayMillis) {
+			timers.add(r);
+			delays.add(delayMillis);
+		}
+
+		@Override
+		public void removeCallbacks(@NonNull final Runnable r) {
+			timers.remove(r);
+		}
+	};
+
+	private ReliableStream client;
+	private ReliableStream server;
+	private final List<byte[]> received = new ArrayList<>();
+
+	private ReliableStream.Link linkTo(@NonNull final ReliableStream[] target) {
+		return new ReliableStream.Link() {
+			@Override
+			public void send(@NonNull final byte[] packet) {
+				sent++;
+				if (linkDown || (lossInterval > 0 && sent % lossInterval == 0))
+					return;
+				air.add(new Object[] { target[0], packet.clone() });
+			}
+
+			@Override
+			public int getMaxPacketLength() {
+				return 20;
+			}
+		};
+	}
+
+	@Before
+	public void setUp() {
+		final ReliableStream[] toServer = new ReliableStream[1];
+		final ReliableStream[] toClient = new ReliableStream[1];
+		client = new ReliableStream(linkTo(toServer), handler, () -> now);
+		server = new ReliableStream(linkTo(toClient), handler, () -> now);
+		toServer[0] = server;
+		toClient[0] = client;
+		server.with((device, data) -> received.add(data.getValue()));
+	}
+
+	/**
+	 * Delivers all packets, firing timers whenever the air is empty.
+	 */
+	private void run() {
+		for (int rounds = 0; rounds < 1000; ++rounds) {
+			while (!air.isEmpty()) {
+				final Object[] item = air.poll();
+				((ReliableStream) item[0]).onPacketReceived(null, new Data((byte[]) item[1]));
+			}
+			if (timers.isEmpty())
+				return;
+			final List<Runnable> due = new ArrayList<>(timers);
+			timers.clear();
+			due.forEach(Runnable::run);
+		}
+	}
+
+	private static byte[] message(final int length, final int seed) {
+		final byte[] message = new byte[length];
+		for (int i = 0; i < length; ++i)
+			message[i] = (byte) (i * 7 + seed);
+		return message;
+	}
+
+	@Test
+	public void send_inOrder() {
+		final boolean[] completed = new boolean[1];
+		client.send(message(100, 1));
+		client.send(new byte[0]);
+		client.send(message(30, 2), device -> completed[0] = true);
+		run();
+
+		assertEquals(3, received.size());
+		assertArrayEquals(message(100, 1), received.get(0));
+		assertEquals(0, received.get(1).length);
+		assertArrayEquals(message(30, 2), received.get(2));
+		assertTrue(completed[0]);
+		assertEquals(0, client.getOutstandingPackets());
+	}
+
+	@Test
+	public void send_delayedAck() {
+		client.send(message(18 * 16, 0));
+		run();
+		// 16 data packets, acknowledged with 2 ACKs for half of the window each.
+		assertEquals(18, sent);
+	}
+
+	@Test
+	public void send_lossy() {
+		lossInterval = 5;
+		final List<byte[]> messages = new ArrayList<>();
+		for (int i = 0; i < 50; ++i) {
+			final byte[] message = message(10 + i * 13, i);
+			messages.add(message);
+			client.send(message);
+		}
+		run();
+
+		assertEquals(messages.size(), received.size());
+		for (int i = 0; i < messages.size(); ++i)
+			assertTrue("Message " + i, Arrays.equals(messages.get(i), received.get(i)));
+		assertEquals(0, client.getOutstandingPackets());
+		assertFalse(client.isClosed());
+	}
+
+	@Test
+	public void send_sequenceWraps() {
+		client.window(ReliableStream.MAX_WINDOW);
+		client.send(message(18 * 600, 3));
+		run();
+		assertEquals(1, received.size());
+		assertArrayEquals(message(18 * 600, 3), received.get(0));
+	}
+
+	@Test
+	public void send_rttEstimated() {
+		// With a window of 2 the server acknowledges every packet immediately.
+		server.window(2);
+		client.send(message(10, 0));
+		now += 100;
+		run();
+
+		// The first sample sets SRTT to 100 ms and RTTVAR to 50 ms.
+		assertEquals(1, received.size());
+		assertEquals(100 + 4 * 50, client.getRetransmissionTimeout());
+	}
+
+	@Test
+	public void send_retransmittedAfterTimeout() {
+		linkDown = true;
+		client.send(message(10, 0));
+		// The retransmission timer is started with the initial timeout.
+		assertEquals(List.of(1000L), delays);
+		timers.remove(0).run();
+		timers.remove(0).run();
+		assertEquals(3, sent);
+		// The timeout is doubled with every retransmission.
+		assertEquals(List.of(1000L, 2000L, 4000L), delays);
+
+		// A retransmitted packet does not give an RTT sample.
+		linkDown = false;
+		server.window(2);
+		now += 5000;
+		timers.remove(0).run();
+		run();
+		assertEquals(1, received.size());
+		assertEquals(8000, client.getRetransmissionTimeout());
+	}
+
+	@Test
+	public void send_fails() {
+		final int[] reason = new int[1];
+		final boolean[] closed = new boolean[1];
+		client.fail((device, status) -> reason[0] = status)
+				.then(() -> closed[0] = true);
+		linkDown = true;
+		client.send(message(10, 0));
+		run();
+
+		assertEquals(FailCallback.REASON_TIMEOUT, reason[0]);
+		assertTrue(closed[0]);
+		assertTrue(client.isClosed());
+		assertEquals(1 + ReliableStream.MAX_RETRANSMISSIONS, sent);
+	}
+}
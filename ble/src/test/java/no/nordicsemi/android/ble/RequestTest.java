@@ -22,19 +22,32 @@
 
 package no.nordicsemi.android.ble;
 
+import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothGattCharacteristic;
+import android.os.SystemClock;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.UUID;
 
 import androidx.annotation.NonNull;
+import no.nordicsemi.android.ble.data.BufferPool;
+import no.nordicsemi.android.ble.data.Data;
+import no.nordicsemi.android.ble.data.DataSource;
+import no.nordicsemi.android.ble.data.LengthPrefixMerger;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 @SuppressWarnings("ConstantConditions")
@@ -70,6 +83,11 @@ public class RequestTest {
 	private boolean called;
 	private boolean done;
 
+	@After
+	public void tearDown() {
+		Request.clock = SystemClock::elapsedRealtime;
+	}
+
 	@Before
 	public void init() {
 		characteristic = new BluetoothGattCharacteristic(UUID.randomUUID(), BluetoothGattCharacteristic.PROPERTY_WRITE, BluetoothGattCharacteristic.PERMISSION_WRITE);
@@ -198,4 +216,351 @@ public class RequestTest {
 		readRequest.notifySuccess(null);
 		assertTrue(done);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void merge_pendingData() {
+		final Data[] received = new Data[1];
+		final ReadRequest request = Request.newReadRequest(characteristic)
+				.merge(new LengthPrefixMerger())
+				.filterPacket(data -> data[0] != 0x0A)
+				.with((device, data) -> received[0] = data);
+		request.handler = new SynchronousHandler();
+
+		// A single packet contains 2 frames, the first one is filtered out.
+		request.notifyValueChanged(null, new byte[] { 1, 0x0A, 2, 0x0B, 0x0C });
+		assertFalse(request.hasMore());
+		assertArrayEquals(new byte[] { 0x0B, 0x0C }, received[0].getValue());
+	}
+
+	@Test
+	public void read_singleFlight() {
+		final Data[] received = new Data[2];
+		final int[] completed = new int[1];
+		final ReadRequest first = Request.newReadRequest(characteristic)
+				.singleFlight()
+				.with((device, data) -> received[0] = data)
+				.done(device -> completed[0]++);
+		final ReadRequest second = Request.newReadRequest(characteristic)
+				.singleFlight()
+				.with((device, data) -> received[1] = data)
+				.done(device -> completed[0]++);
+		final ReadRequest filtered = Request.newReadRequest(characteristic)
+				.singleFlight()
+				.filter(data -> true);
+		first.handler = new SynchronousHandler();
+		second.handler = new SynchronousHandler();
+
+		assertTrue(first.join(second));
+		assertFalse(first.join(filtered));
+
+		first.notifyValueChanged(null, text.getBytes());
+		// Once the value was received, no other request may join
+		assertFalse(first.join(Request.newReadRequest(characteristic).singleFlight()));
+		first.notifySuccess(null);
+
+		assertNotNull(received[0]);
+		assertSame(received[0], received[1]);
+		assertEquals(2, completed[0]);
+	}
+
+	@Test
+	public void read_singleFlightHandOver() {
+		final ReadRequest leader = Request.newReadRequest(characteristic)
+				.singleFlight();
+		final ReadRequest background = Request.newReadRequest(characteristic)
+				.singleFlight()
+				.priority(Request.PRIORITY_BACKGROUND);
+		final ReadRequest interactive = Request.newReadRequest(characteristic)
+				.singleFlight();
+		assertTrue(leader.join(background));
+		assertTrue(leader.join(interactive));
+
+		// The most urgent request takes over, the others join it.
+		assertSame(interactive, leader.handOver());
+		assertFalse(leader.join(Request.newReadRequest(characteristic).singleFlight()));
+		assertNull(leader.handOver());
+		assertSame(background, interactive.handOver());
+		assertNull(background.handOver());
+	}
+
+	@Test
+	public void read_singleFlightRespectsPriority() {
+		final ReadRequest background = Request.newReadRequest(characteristic)
+				.singleFlight()
+				.priority(Request.PRIORITY_BACKGROUND);
+		final ReadRequest interactive = Request.newReadRequest(characteristic)
+				.singleFlight();
+		assertFalse(background.join(interactive));
+		assertTrue(interactive.join(background));
+	}
+
+	@Test
+	public void write_dataSource() {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final boolean[] closed = new boolean[1];
+		final InputStream stream = new ByteArrayInputStream(text.getBytes()) {
+			@Override
+			public void close() {
+				closed[0] = true;
+			}
+		};
+		final WriteRequest request = Request.newWriteRequest(characteristic, DataSource.from(stream),
+						BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE)
+				.split((device, data, index) -> {
+					output.write(data, 0, data.length);
+				})
+				.done(device -> done = true);
+		request.handler = new SynchronousHandler();
+		done = false;
+		do {
+			chunk = request.getData(MTU);
+			assertTrue(chunk.length <= MTU - 3);
+			request.notifyPacketSent(null, chunk);
+		} while (request.hasMore());
+		assertFalse(request.hasSourceFailed());
+		request.notifySuccess(null);
+		assertArrayEquals(text.getBytes(), output.toByteArray());
+		assertTrue(done);
+		assertTrue(closed[0]);
+	}
+
+	@Test
+	public void write_dataSourceFailure() {
+		final DataSource source = new DataSource() {
+			private int count;
+
+			@Override
+			public byte[] next(final int maxLength) throws IOException {
+				if (count++ == 2)
+					throw new IOException("Read error");
+				return new byte[maxLength];
+			}
+
+			@Override
+			public void close() {
+				// do nothing
+			}
+		};
+		final WriteRequest request = Request.newWriteRequest(characteristic, source,
+				BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE);
+		// The first packet was read ahead with the second one, so it's sent normally.
+		assertEquals(MTU - 3, request.getData(MTU).length);
+		assertFalse(request.hasSourceFailed());
+		// The second packet was read, but reading the third one failed.
+		assertEquals(MTU - 3, request.getData(MTU).length);
+		assertFalse(request.hasSourceFailed());
+		assertTrue(request.hasMore());
+		request.getData(MTU);
+		assertTrue(request.hasSourceFailed());
+		assertFalse(request.hasMore());
+	}
+
+	@Test
+	public void split_pooled() {
+		final BufferPool pool = new BufferPool(4);
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final WriteRequest request = Request.newWriteRequest(characteristic, text.getBytes(), BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT)
+				.split((device, data, index) -> {
+					output.write(data, 0, data.length);
+				})
+				.usePool(pool);
+		request.handler = new SynchronousHandler();
+		chunk = request.getData(MTU);
+		assertTrue(request.notifyPacketSent(null, chunk.clone()));
+		final byte[] first = chunk;
+		// Each packet reuses the array of the previous one, returned to the pool when sent.
+		chunk = request.getData(MTU);
+		assertTrue(request.notifyPacketSent(null, chunk.clone()));
+		chunk = request.getData(MTU);
+		assertSame(first, chunk);
+		while (true) {
+			assertTrue(request.notifyPacketSent(null, chunk.clone()));
+			if (!request.hasMore())
+				break;
+			chunk = request.getData(MTU);
+		}
+		assertArrayEquals(text.getBytes(), output.toByteArray());
+	}
+
+	@Test
+	public void bulkTransfer() {
+		final long[] now = { 1000 };
+		Request.clock = () -> now[0];
+		final long[] transferred = new long[2];
+		final BulkTransferRequest queue = Request.newBulkTransferRequest()
+				.add(Request.newWriteRequest(characteristic, text.getBytes(), BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE)
+						.split())
+				.with((device, bytes, bytesPerSecond) -> {
+					transferred[0] = bytes;
+					transferred[1] = bytesPerSecond;
+				});
+		queue.handler = new SynchronousHandler();
+
+		final Request.Type[] expected = {
+				Request.Type.READ_PHY, Request.Type.REQUEST_MTU, Request.Type.SET_PREFERRED_PHY,
+				Request.Type.REQUEST_CONNECTION_PRIORITY, Request.Type.WRITE,
+				Request.Type.SET_PREFERRED_PHY, Request.Type.REQUEST_CONNECTION_PRIORITY
+		};
+		int i = 0;
+		while (queue.hasMore()) {
+			final Request request = queue.getNext();
+			request.handler = new SynchronousHandler();
+			assertEquals(expected[i++], request.type);
+			if (request instanceof final PhyRequest pr && pr.type == Request.Type.READ_PHY) {
+				pr.notifyPhyChanged(null, 1, 1);
+			}
+			if (request instanceof final WriteRequest wr) {
+				do {
+					wr.notifyPacketSent(null, wr.getData(MTU));
+				} while (wr.hasMore());
+				// The transfer takes 500 ms.
+				now[0] += 500;
+			}
+		}
+		assertEquals(expected.length, i);
+
+		queue.notifySuccess(null);
+		assertEquals(text.length(), transferred[0]);
+		assertEquals(text.length() * 2L, transferred[1]);
+	}
+
+	@Test
+	public void split_adaptive() {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final LinkPacer pacer = new LinkPacer();
+		pacer.setInterval(6);
+		pacer.setPhy(BluetoothDevice.PHY_LE_CODED);
+		final WriteRequest request = Request.newWriteRequest(characteristic, text.getBytes(), BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE)
+				.adaptive();
+		request.handler = new SynchronousHandler();
+		request.setPacer(pacer);
+
+		chunk = request.getData(247);
+		assertEquals(85, chunk.length);
+		output.write(chunk, 0, chunk.length);
+		request.notifyPacketSent(null, chunk);
+
+		// The PHY was changed during the transfer.
+		pacer.setPhy(BluetoothDevice.PHY_LE_1M);
+		chunk = request.getData(247);
+		assertEquals(244, chunk.length);
+		output.write(chunk, 0, chunk.length);
+		request.notifyPacketSent(null, chunk);
+
+		while (request.hasMore()) {
+			chunk = request.getData(247);
+			output.write(chunk, 0, chunk.length);
+			request.notifyPacketSent(null, chunk);
+		}
+		assertArrayEquals(text.getBytes(), output.toByteArray());
+	}
+
+	@Test
+	public void split_resume() {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final WriteRequest request = Request.newWriteRequest(characteristic, text.getBytes(), BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT)
+				.split();
+		request.handler = new SynchronousHandler();
+		for (int i = 0; i < 3; ++i) {
+			chunk = request.getData(MTU);
+			output.write(chunk, 0, chunk.length);
+			request.notifyPacketSent(null, chunk.clone());
+		}
+		// A packet written, but not confirmed before the link was lost.
+		request.getData(MTU);
+
+		final ResumeToken token = request.getResumeToken();
+		assertEquals(3 * (MTU - 3), token.getOffset());
+		assertEquals(3, token.getPacketCount());
+		assertFalse(token.isComplete());
+
+		// Resume with a higher MTU.
+		final WriteRequest resumed = Request.newWriteRequest(characteristic, text.getBytes(), BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT)
+				.resumeFrom(token);
+		resumed.handler = new SynchronousHandler();
+		do {
+			chunk = resumed.getData(247);
+			output.write(chunk, 0, chunk.length);
+			resumed.notifyPacketSent(null, chunk.clone());
+		} while (resumed.hasMore());
+		assertArrayEquals(text.getBytes(), output.toByteArray());
+		assertTrue(resumed.getResumeToken().isComplete());
+	}
+
+	@Test
+	public void split_resumeDataSource() {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		output.write(text.getBytes(), 0, 100);
+		final WriteRequest request = Request.newWriteRequest(characteristic,
+						DataSource.from(new ByteArrayInputStream(text.getBytes())),
+						BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE)
+				.split()
+				.resumeFrom(new ResumeToken(-1, 100, 5));
+		request.handler = new SynchronousHandler();
+		do {
+			chunk = request.getData(MTU);
+			output.write(chunk, 0, chunk.length);
+			request.notifyPacketSent(null, chunk);
+		} while (request.hasMore());
+		assertArrayEquals(text.getBytes(), output.toByteArray());
+		assertEquals(text.length(), request.getResumeToken().getOffset());
+	}
+
+	@Test
+	public void split_offsetsOfPacketsInFlight() {
+		final WriteRequest request = Request.newWriteRequest(characteristic, text.getBytes(), BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE)
+				.split();
+		request.handler = new SynchronousHandler();
+
+		// Get more packets than the initial capacity of the offset buffer before confirming any.
+		for (int i = 0; i < 10; ++i)
+			request.getData(MTU);
+		for (int i = 1; i <= 10; ++i) {
+			request.notifyPacketSent(null, null);
+			assertEquals(i * (MTU - 3), request.getResumeToken().getOffset());
+		}
+		// Confirming the packets frees space for new ones.
+		for (int i = 0; i < 3; ++i)
+			request.getData(MTU);
+		request.notifyPacketSent(null, null);
+		assertEquals(11 * (MTU - 3), request.getResumeToken().getOffset());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void split_resumeOtherData() {
+		Request.newWriteRequest(characteristic, new byte[10], BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT)
+				.resumeFrom(new ResumeToken(20, 5, 1));
+	}
+
+	@Test
+	public void split_startedDoesNotExpire() {
+		final long[] now = new long[1];
+		Request.clock = () -> now[0];
+		final WriteRequest request = Request.newWriteRequest(characteristic, text.getBytes(), BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE)
+				.split()
+				.done(device -> done = true);
+		request.expireAfter(5);
+		request.handler = new SynchronousHandler();
+		final WriteRequest waiting = Request.newWriteRequest(characteristic, text.getBytes(), BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE)
+				.expireAfter(5);
+		request.notifyEnqueued();
+		waiting.notifyEnqueued();
+		request.notifyStarted(null);
+
+		// Send the first packet and let the TTL pass.
+		chunk = request.getData(MTU);
+		request.notifyPacketSent(null, chunk);
+		now[0] += 20;
+		assertTrue(waiting.isExpired());
+
+		// The request is re-queued between packets, but it has been started, so it can complete.
+		done = false;
+		while (request.hasMore()) {
+			assertFalse(request.isExpired());
+			chunk = request.getData(MTU);
+			request.notifyPacketSent(null, chunk);
+		}
+		request.notifySuccess(null);
+		assertTrue(done);
+	}
+}
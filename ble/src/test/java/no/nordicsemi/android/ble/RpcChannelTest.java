@@ -0,0 +1,132 @@
+package no.nordicsemi.android.ble;
+
+import android.bluetooth.BluetoothDevice;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import no.nordicsemi.android.ble.callback.FailCallback;
+import no.nordicsemi.android.ble.data.Data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RpcChannelTest {
+	private final List<byte[]> sent = new ArrayList<>();
+	private final List<FailCallback> sendCallbacks = new ArrayList<>();
+	private final List<Runnable> timers = new ArrayList<>();
+	private final List<String> events = new ArrayList<>();
+	private RpcChannel channel;
+
+	private final CallbackHandler handler = new CallbackHandler() {
+		@Override
+		public void post(@NonNull final Runnable r) {
+			r.run();
+		}
+
+		@Override
+		public void postDelayed(@NonNull final Runnable r, final long delayMillis) {
+			timers.add(r);
+		}
+
+		@Override
+		public void removeCallbacks(@NonNull final Runnable r) {
+			timers.remove(r);
+		}
+	};
+
+	@Before
+	public void setUp() {
+		channel = new RpcChannel(new RpcChannel.Transport() {
+			@Override
+			public void send(@NonNull final byte[] packet, @NonNull final FailCallback callback) {
+				sent.add(packet);
+				sendCallbacks.add(callback);
+			}
+
+			@Nullable
+			@Override
+			public BluetoothDevice getDevice() {
+				return null;
+			}
+		}, handler);
+	}
+
+	private void call(final int command) {
+		channel.call(new byte[] { (byte) command })
+				.with((device, data) -> events.add(command + ":" + data.getByte(0)))
+				.fail((device, status) -> events.add(command + ":failed " + status))
+				.enqueue();
+	}
+
+	private void respond(final byte[] packet, final int value) {
+		channel.onResponse(null, new Data(new byte[] { packet[0], (byte) value }));
+	}
+
+	@Test
+	public void call_pipelined() {
+		for (int i = 0; i < 6; ++i)
+			call(i);
+		// Only 4 calls are sent before any response.
+		assertEquals(4, sent.size());
+		assertEquals(4, channel.getCallsInFlight());
+
+		// Responses are routed by ID, in any order.
+		respond(sent.get(2), 12);
+		respond(sent.get(0), 10);
+		assertEquals(List.of("2:12", "0:10"), events);
+		assertEquals(6, sent.size());
+		assertEquals(5, sent.get(5)[1]);
+
+		// Unknown and repeated IDs are ignored.
+		respond(new byte[] { 100 }, 0);
+		respond(sent.get(0), 10);
+		assertEquals(2, events.size());
+	}
+
+	@Test
+	public void call_timeout() {
+		call(1);
+		call(2);
+		respond(sent.get(1), 22);
+		// The timer of a completed call is cancelled.
+		assertEquals(1, timers.size());
+		new ArrayList<>(timers).forEach(Runnable::run);
+		assertTrue(timers.isEmpty());
+		assertEquals(List.of("2:22", "1:failed " + FailCallback.REASON_TIMEOUT), events);
+		assertEquals(0, channel.getCallsInFlight());
+
+		// A late response to a call that timed out is not routed.
+		call(3);
+		respond(sent.get(0), 11);
+		assertEquals(2, events.size());
+		assertTrue(sent.get(2)[0] != sent.get(0)[0]);
+	}
+
+	@Test
+	public void call_sendFailed() {
+		call(1);
+		sendCallbacks.get(0).onRequestFailed(null, FailCallback.REASON_NULL_ATTRIBUTE);
+		assertEquals(List.of("1:failed " + FailCallback.REASON_NULL_ATTRIBUTE), events);
+		assertEquals(0, channel.getCallsInFlight());
+	}
+
+	@Test
+	public void close() {
+		channel.maxCallsInFlight(1);
+		call(1);
+		call(2);
+		channel.close();
+		assertEquals(List.of(
+				"1:failed " + FailCallback.REASON_DEVICE_DISCONNECTED,
+				"2:failed " + FailCallback.REASON_DEVICE_DISCONNECTED), events);
+		assertEquals(1, sent.size());
+		assertTrue(timers.isEmpty());
+	}
+}
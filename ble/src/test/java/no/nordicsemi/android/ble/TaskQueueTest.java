@@ -0,0 +1,380 @@
+package no.nordicsemi.android.ble;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TaskQueueTest {
+
+	private static Request request(final int priority) {
+		final Request request = Request.newSleepRequest(0).priority(priority);
+		request.enqueued = true;
+		return request;
+	}
+
+	private static BluetoothGattCharacteristic characteristic() {
+		return new BluetoothGattCharacteristic(UUID.randomUUID(),
+				BluetoothGattCharacteristic.PROPERTY_WRITE, BluetoothGattCharacteristic.PERMISSION_WRITE);
+	}
+
+	private static WriteRequest write(final BluetoothGattCharacteristic characteristic) {
+		return Request.newWriteRequest(characteristic, new byte[] { 1 },
+				BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT);
+	}
+
+	@Test
+	public void poll_empty() {
+		final TaskQueue queue = new TaskQueue();
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+	}
+
+	@Test
+	public void poll_defaultPriorityIsFifo() {
+		final TaskQueue queue = new TaskQueue();
+		final Request first = Request.newSleepRequest(0);
+		final Request second = Request.newSleepRequest(0);
+		queue.add(first);
+		queue.add(second);
+		assertSame(first, queue.poll());
+		assertSame(second, queue.poll());
+		assertNull(queue.poll());
+	}
+
+	@Test
+	public void poll_higherPriorityFirst() {
+		final TaskQueue queue = new TaskQueue();
+		final Request background = request(Request.PRIORITY_BACKGROUND);
+		final Request bulk = request(Request.PRIORITY_BULK);
+		final Request interactive = request(Request.PRIORITY_INTERACTIVE);
+		final Request control = request(Request.PRIORITY_CONTROL);
+		queue.add(background);
+		queue.add(bulk);
+		queue.add(interactive);
+		queue.add(control);
+		assertEquals(4, queue.size());
+		assertSame(control, queue.poll());
+		assertSame(interactive, queue.poll());
+		assertSame(bulk, queue.poll());
+		assertSame(background, queue.poll());
+	}
+
+	@Test
+	public void addFirst_continuesInOwnLane() {
+		final TaskQueue queue = new TaskQueue();
+		final Request control = request(Request.PRIORITY_CONTROL);
+		final Request bulk1 = request(Request.PRIORITY_BULK);
+		final Request bulk2 = request(Request.PRIORITY_BULK);
+		queue.add(bulk1);
+		queue.add(bulk2);
+		assertSame(bulk1, queue.poll());
+		queue.add(control);
+		queue.addFirst(bulk1);
+		assertSame(control, queue.poll());
+		assertSame(bulk1, queue.poll());
+		assertSame(bulk2, queue.poll());
+	}
+
+	@Test
+	public void poll_starvationProtection() {
+		final TaskQueue queue = new TaskQueue();
+		final Request background = request(Request.PRIORITY_BACKGROUND);
+		queue.add(background);
+		for (int i = 0; i < TaskQueue.MAX_SKIPPED + 1; i++) {
+			queue.add(request(Request.PRIORITY_INTERACTIVE));
+		}
+		for (int i = 0; i < TaskQueue.MAX_SKIPPED; i++) {
+			assertEquals(Request.PRIORITY_INTERACTIVE, queue.poll().priority);
+		}
+		assertSame(background, queue.poll());
+		assertEquals(Request.PRIORITY_INTERACTIVE, queue.poll().priority);
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void poll_skipsCancelled() {
+		final TaskQueue queue = new TaskQueue();
+		for (int i = 0; i < 100_000; i++) {
+			final SleepRequest request = Request.newSleepRequest(0);
+			queue.add(request);
+			request.cancel();
+		}
+		final Request last = Request.newSleepRequest(0);
+		queue.add(last);
+		assertSame(last, queue.poll());
+		assertNull(queue.poll());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void drain_sortedByPriority() {
+		final TaskQueue queue = new TaskQueue();
+		final Request bulk = request(Request.PRIORITY_BULK);
+		final Request control = request(Request.PRIORITY_CONTROL);
+		queue.add(bulk);
+		queue.add(control);
+		final List<Request> requests = queue.drain();
+		assertEquals(2, requests.size());
+		assertSame(control, requests.get(0));
+		assertSame(bulk, requests.get(1));
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void add_dropNewest() {
+		final TaskQueue queue = new TaskQueue();
+		queue.setCapacity(2, BleManager.QUEUE_OVERFLOW_DROP_NEWEST);
+		final Request first = request(Request.PRIORITY_INTERACTIVE);
+		final Request second = request(Request.PRIORITY_INTERACTIVE);
+		final Request third = request(Request.PRIORITY_INTERACTIVE);
+		assertTrue(queue.add(first).isEmpty());
+		assertTrue(queue.add(second).isEmpty());
+		assertEquals(List.of(third), queue.add(third));
+		assertEquals(2, queue.size());
+		assertSame(first, queue.poll());
+		assertTrue(queue.add(third).isEmpty());
+	}
+
+	@Test
+	public void add_dropOldestInSameLane() {
+		final TaskQueue queue = new TaskQueue();
+		queue.setCapacity(2, BleManager.QUEUE_OVERFLOW_DROP_OLDEST);
+		final Request control = request(Request.PRIORITY_CONTROL);
+		final Request bulk1 = request(Request.PRIORITY_BULK);
+		final Request bulk2 = request(Request.PRIORITY_BULK);
+		final Request control2 = request(Request.PRIORITY_CONTROL);
+		queue.add(control);
+		queue.add(bulk1);
+		assertEquals(List.of(bulk1), queue.add(bulk2));
+		assertEquals(List.of(control), queue.add(control2));
+		assertSame(control2, queue.poll());
+		assertSame(bulk2, queue.poll());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void add_dropOldestWithoutCandidateRejectsNew() {
+		final TaskQueue queue = new TaskQueue();
+		queue.setCapacity(1, BleManager.QUEUE_OVERFLOW_DROP_OLDEST);
+		queue.add(request(Request.PRIORITY_BULK));
+		final Request control = request(Request.PRIORITY_CONTROL);
+		assertEquals(List.of(control), queue.add(control));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void add_failFast() {
+		final TaskQueue queue = new TaskQueue();
+		queue.setCapacity(1, BleManager.QUEUE_OVERFLOW_FAIL);
+		queue.add(request(Request.PRIORITY_INTERACTIVE));
+		queue.add(request(Request.PRIORITY_INTERACTIVE));
+	}
+
+	@Test
+	public void add_blockUntilPolled() throws InterruptedException {
+		final TaskQueue queue = new TaskQueue();
+		queue.setCapacity(1, BleManager.QUEUE_OVERFLOW_BLOCK);
+		final Request first = request(Request.PRIORITY_INTERACTIVE);
+		final Request second = request(Request.PRIORITY_INTERACTIVE);
+		queue.add(first);
+		// Without permission to block the request is rejected.
+		assertEquals(List.of(second), queue.add(second, false));
+
+		final List<List<Request>> result = new ArrayList<>();
+		final Thread producer = new Thread(() -> result.add(queue.add(second, true)));
+		producer.start();
+		while (producer.getState() != Thread.State.WAITING)
+			Thread.yield();
+		assertSame(first, queue.poll());
+		producer.join();
+		assertTrue(result.get(0).isEmpty());
+		assertSame(second, queue.poll());
+	}
+
+	@Test
+	public void add_characteristicLimit() {
+		final BluetoothGattCharacteristic limited = characteristic();
+		final BluetoothGattCharacteristic other = characteristic();
+		final TaskQueue queue = new TaskQueue();
+		queue.setCapacity(limited, 1, BleManager.QUEUE_OVERFLOW_DROP_OLDEST);
+		final Request first = write(limited);
+		final Request second = write(limited);
+		queue.add(first);
+		assertTrue(queue.add(write(other)).isEmpty());
+		assertEquals(List.of(first), queue.add(second));
+		assertEquals(2, queue.size());
+	}
+
+	@Test
+	public void add_characteristicLimitConcurrent() throws InterruptedException {
+		final BluetoothGattCharacteristic limited = characteristic();
+		final BluetoothGattCharacteristic other = characteristic();
+		final TaskQueue queue = new TaskQueue();
+		queue.setCapacity(limited, 8, BleManager.QUEUE_OVERFLOW_DROP_NEWEST);
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Thread> producers = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			final Thread producer = new Thread(() -> {
+				try {
+					start.await();
+				} catch (final InterruptedException e) {
+					return;
+				}
+				for (int j = 0; j < 1000; j++) {
+					queue.add(write(other));
+					queue.add(write(limited));
+				}
+			});
+			producer.start();
+			producers.add(producer);
+		}
+		start.countDown();
+		for (final Thread producer : producers)
+			producer.join();
+
+		int count = 0;
+		Request request;
+		while ((request = queue.poll()) != null) {
+			if (request.characteristic == limited)
+				count++;
+		}
+		assertEquals(8, count);
+	}
+
+	@Test
+	public void replace_coalescingWriteKeepsPosition() {
+		final BluetoothGattCharacteristic led = characteristic();
+		final TaskQueue queue = new TaskQueue();
+		final WriteRequest oldValue = write(led).coalesce();
+		final Request other = request(Request.PRIORITY_INTERACTIVE);
+		final WriteRequest newValue = write(led).coalesce();
+		final WriteRequest notCoalescing = write(led);
+		queue.add(oldValue);
+		queue.add(other);
+		assertNull(queue.replace(notCoalescing));
+		assertSame(oldValue, queue.replace(newValue));
+		assertEquals(2, queue.size());
+		assertSame(newValue, queue.poll());
+		assertSame(other, queue.poll());
+		// The request being executed is not replaced.
+		newValue.started = true;
+		queue.addFirst(newValue);
+		assertNull(queue.replace(write(led).coalesce()));
+	}
+
+	@Test
+	public void replace_cancelledRequest() {
+		final TaskQueue queue = new TaskQueue();
+		final Request cancelled = request(Request.PRIORITY_INTERACTIVE);
+		final Request other = request(Request.PRIORITY_INTERACTIVE);
+		final Request successor = request(Request.PRIORITY_INTERACTIVE);
+		final Request background = request(Request.PRIORITY_BACKGROUND);
+		queue.add(cancelled);
+		queue.add(other);
+		// A request with the same priority takes the position of the cancelled one.
+		queue.replace(cancelled, successor);
+		assertEquals(2, queue.size());
+		// Otherwise, it is added at the end of its lane.
+		queue.replace(other, background);
+		assertEquals(2, queue.size());
+		assertSame(successor, queue.poll());
+		assertSame(background, queue.poll());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void observer_reportsDepth() {
+		final TaskQueue queue = new TaskQueue();
+		final List<Integer> depths = new ArrayList<>();
+		queue.setObserver(depths::add);
+		queue.add(request(Request.PRIORITY_INTERACTIVE));
+		queue.add(request(Request.PRIORITY_INTERACTIVE));
+		queue.poll();
+		queue.drain();
+		assertEquals(List.of(1, 2, 1, 0), depths);
+	}
+
+	@Test
+	public void add_concurrentProducers() throws InterruptedException {
+		final int producers = 8;
+		final int requestsPerProducer = 10_000;
+		final TaskQueue queue = new TaskQueue();
+
+		// Create all requests upfront, remembering which producer added each of them.
+		final List<List<Request>> requests = new ArrayList<>();
+		final Map<Request, Integer> owners = new IdentityHashMap<>();
+		for (int p = 0; p < producers; p++) {
+			final List<Request> list = new ArrayList<>(requestsPerProducer);
+			for (int i = 0; i < requestsPerProducer; i++) {
+				final Request request = request(i % 2 == 0 ? Request.PRIORITY_INTERACTIVE : Request.PRIORITY_BULK);
+				list.add(request);
+				owners.put(request, p);
+			}
+			requests.add(list);
+		}
+
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			final List<Request> list = requests.get(p);
+			final Thread thread = new Thread(() -> {
+				try {
+					start.await();
+				} catch (final InterruptedException e) {
+					return;
+				}
+				for (final Request request : list) {
+					queue.add(request);
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		start.countDown();
+
+		// Consume while producers are adding. Within a lane, requests from each producer
+		// must be returned in the order they were added.
+		final int[][] next = new int[producers][Request.PRIORITY_BACKGROUND + 1];
+		int received = 0;
+		while (received < producers * requestsPerProducer) {
+			final Request request = queue.poll();
+			if (request == null) {
+				Thread.yield();
+				continue;
+			}
+			final int p = owners.get(request);
+			final List<Request> list = requests.get(p);
+			int index = next[p][request.priority];
+			while (list.get(index).priority != request.priority)
+				index++;
+			assertSame(list.get(index), request);
+			next[p][request.priority] = index + 1;
+			received++;
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void priority_outOfRange() {
+		Request.newSleepRequest(0).priority(Request.PRIORITY_BACKGROUND + 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void priority_negative() {
+		Request.newSleepRequest(0).priority(-1);
+	}
+}
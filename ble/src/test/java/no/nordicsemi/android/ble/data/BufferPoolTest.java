@@ -0,0 +1,40 @@
+package no.nordicsemi.android.ble.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class BufferPoolTest {
+
+	@Test
+	public void obtain_reusesRecycled() {
+		final BufferPool pool = new BufferPool(2);
+		final byte[] buffer = pool.obtain(20);
+		assertEquals(20, buffer.length);
+		pool.recycle(buffer);
+		assertEquals(1, pool.getAvailable(20));
+		assertSame(buffer, pool.obtain(20));
+		assertNotSame(buffer, pool.obtain(20));
+	}
+
+	@Test
+	public void obtain_pooledByLength() {
+		final BufferPool pool = new BufferPool(2);
+		pool.recycle(new byte[20]);
+		assertEquals(0, pool.getAvailable(19));
+		assertEquals(19, pool.obtain(19).length);
+		assertEquals(1, pool.getAvailable(20));
+	}
+
+	@Test
+	public void recycle_limited() {
+		final BufferPool pool = new BufferPool(2);
+		for (int i = 0; i < 5; i++)
+			pool.recycle(new byte[20]);
+		assertEquals(2, pool.getAvailable(20));
+		pool.recycle(new byte[BufferPool.MAX_LENGTH + 1]);
+		assertEquals(0, pool.getAvailable(BufferPool.MAX_LENGTH + 1));
+	}
+}
@@ -0,0 +1,80 @@
+package no.nordicsemi.android.ble.data;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DataSourceTest {
+	private static final int LENGTH = 1000;
+	private static final int MAX_LENGTH = 20;
+
+	private static byte[] payload() {
+		final byte[] payload = new byte[LENGTH];
+		for (int i = 0; i < payload.length; i++)
+			payload[i] = (byte) i;
+		return payload;
+	}
+
+	private static byte[] readAll(final DataSource source) throws IOException {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] packet;
+		while ((packet = source.next(MAX_LENGTH)) != null) {
+			assertTrue(packet.length <= MAX_LENGTH);
+			output.write(packet, 0, packet.length);
+		}
+		assertNull(source.next(MAX_LENGTH));
+		return output.toByteArray();
+	}
+
+	@Test
+	public void from_stream() throws IOException {
+		// A stream returning fewer bytes than requested must still give full packets.
+		final InputStream stream = new ByteArrayInputStream(payload()) {
+			@Override
+			public synchronized int read(final byte[] b, final int off, final int len) {
+				return super.read(b, off, Math.min(len, 7));
+			}
+		};
+		final DataSource source = DataSource.from(stream);
+		assertEquals(-1, source.length());
+		assertEquals(MAX_LENGTH, source.next(MAX_LENGTH).length);
+		source.close();
+	}
+
+	@Test
+	public void from_channel() throws IOException {
+		final DataSource source = DataSource.from(Channels.newChannel(new ByteArrayInputStream(payload())));
+		assertArrayEquals(payload(), readAll(source));
+	}
+
+	@Test
+	public void map_file() throws IOException {
+		final File file = File.createTempFile("source", ".bin");
+		try {
+			Files.write(file.toPath(), payload());
+			try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				final DataSource source = DataSource.map(channel, 100, 500);
+				assertEquals(500, source.length());
+				final byte[] expected = new byte[500];
+				System.arraycopy(payload(), 100, expected, 0, 500);
+				assertArrayEquals(expected, readAll(source));
+			}
+		} finally {
+			//noinspection ResultOfMethodCallIgnored
+			file.delete();
+		}
+	}
+}
@@ -26,6 +26,7 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.util.Objects;
 
@@ -70,4 +71,43 @@ public class DataStreamTest {
 		final Data data = stream.toData();
 		assertEquals(0x100, Objects.requireNonNull(data.getIntValue(Data.FORMAT_UINT16_LE, 0)).intValue());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void toData_handOff() {
+		final DataStream stream = new DataStream(4);
+		stream.write(new byte[] { 0, 1 });
+		stream.write(new byte[] { 2, 3 });
+		final byte[] value = stream.toData().getValue();
+		// The full buffer is handed off without copying.
+		assertSame(value, stream.toByteArray());
+
+		// Writing after hand-off does not modify the returned array.
+		stream.write(new byte[] { 4 });
+		assertArrayEquals(new byte[] { 0, 1, 2, 3 }, value);
+		assertArrayEquals(new byte[] { 0, 1, 2, 3, 4 }, stream.toByteArray());
+	}
+
+	@Test
+	public void ensureCapacity() {
+		final DataStream stream = new DataStream(0);
+		stream.ensureCapacity(3);
+		stream.write(new byte[] { 1, 2 });
+		assertArrayEquals(new byte[] { 1, 2 }, stream.toByteArray());
+		stream.write(new byte[] { 3 });
+		assertSame(stream.toByteArray(), stream.toByteArray());
+	}
+
+	@Test
+	public void reset() {
+		final DataStream stream = new DataStream(2);
+		stream.write(new byte[] { 1, 2 });
+		final byte[] value = stream.toByteArray();
+		stream.reset();
+		assertEquals(0, stream.size());
+
+		// Writing after reset does not modify the handed off array.
+		stream.write(new byte[] { 3 });
+		assertArrayEquals(new byte[] { 1, 2 }, value);
+		assertArrayEquals(new byte[] { 3 }, stream.toByteArray());
+	}
+}
@@ -24,8 +24,12 @@ package no.nordicsemi.android.ble.data;
 
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class DefaultMtuSplitterTest {
 	private final String text = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod " +
@@ -58,4 +62,15 @@ public class DefaultMtuSplitterTest {
 		final byte[] result = splitter.chunk(text.getBytes(), 200, MTU - 3);
 		assertNull(result);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void chunk_buffer() {
+		final int MTU = 23;
+		final DefaultMtuSplitter splitter = new DefaultMtuSplitter();
+		final ByteBuffer buffer = ByteBuffer.allocate(MTU - 3);
+		assertTrue(splitter.chunk(text.getBytes(), 1, MTU - 3, buffer));
+		assertArrayEquals(text.substring(MTU - 3, 2 * (MTU - 3)).getBytes(), buffer.array());
+		buffer.clear();
+		assertFalse(splitter.chunk(text.getBytes(), 200, MTU - 3, buffer));
+	}
+}
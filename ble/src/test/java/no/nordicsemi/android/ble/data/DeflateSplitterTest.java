@@ -0,0 +1,101 @@
+package no.nordicsemi.android.ble.data;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DeflateSplitterTest {
+	private final byte[] message;
+
+	public DeflateSplitterTest() {
+		final StringBuilder builder = new StringBuilder("[");
+		for (int i = 0; i < 50; ++i) {
+			builder.append("{\"id\":").append(i).append(",\"name\":\"sensor\",\"enabled\":true},");
+		}
+		builder.append("{}]");
+		message = builder.toString().getBytes();
+	}
+
+	@Test
+	public void chunk_roundTrip() {
+		final int maxLength = 20;
+		final DeflateSplitter splitter = new DeflateSplitter();
+		final InflateMerger merger = new InflateMerger();
+		final DataStream output = new DataStream();
+
+		byte[] packet;
+		int index = 0;
+		boolean complete = false;
+		while ((packet = splitter.chunk(message, index, maxLength)) != null) {
+			assertTrue(packet.length <= maxLength);
+			assertFalse(complete);
+			complete = merger.merge(output, packet, index++);
+		}
+		assertTrue(complete);
+		assertArrayEquals(message, output.toByteArray());
+		// The message should be compressed at least 3 times.
+		assertTrue(index * maxLength < message.length / 3);
+	}
+
+	@Test
+	public void chunk_buffer() {
+		final int maxLength = 20;
+		final DeflateSplitter splitter = new DeflateSplitter(9, true);
+		final InflateMerger merger = new InflateMerger(true);
+		final DataStream output = new DataStream();
+		final ByteBuffer buffer = ByteBuffer.allocate(maxLength);
+
+		// The splitter may be reused for the next message.
+		for (int i = 0; i < 2; ++i) {
+			int index = 0;
+			buffer.clear();
+			while (splitter.chunk(message, index, maxLength, buffer)) {
+				final byte[] packet = new byte[buffer.position()];
+				buffer.flip();
+				buffer.get(packet);
+				buffer.clear();
+				merger.merge(output, packet, index++);
+			}
+		}
+		final byte[] expected = new byte[2 * message.length];
+		System.arraycopy(message, 0, expected, 0, message.length);
+		System.arraycopy(message, 0, expected, message.length, message.length);
+		assertArrayEquals(expected, output.toByteArray());
+	}
+
+	@Test
+	public void merge_corruptedDataDropped() {
+		final int maxLength = 20;
+		final DeflateSplitter splitter = new DeflateSplitter();
+		final InflateMerger merger = new InflateMerger();
+		final DataStream output = new DataStream();
+
+		// A packet with an invalid zlib header is not a complete message.
+		final byte[] corrupted = splitter.chunk(message, 0, maxLength);
+		corrupted[0] = 0;
+		assertFalse(merger.merge(output, corrupted, 0));
+		assertEquals(0, output.size());
+
+		// The next message is decompressed from scratch.
+		final DeflateSplitter next = new DeflateSplitter();
+		byte[] packet;
+		int index = 0;
+		boolean complete = false;
+		while ((packet = next.chunk(message, index, maxLength)) != null)
+			complete = merger.merge(output, packet, 1 + index++);
+		assertTrue(complete);
+		assertArrayEquals(message, output.toByteArray());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void chunk_outOfOrder() {
+		final DeflateSplitter splitter = new DeflateSplitter();
+		splitter.chunk(message, 0, 20);
+		splitter.chunk(message, 2, 20);
+	}
+}
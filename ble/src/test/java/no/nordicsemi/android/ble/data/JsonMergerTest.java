@@ -0,0 +1,78 @@
+package no.nordicsemi.android.ble.data;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JsonMergerTest {
+
+	/**
+	 * Merges the message split into packets of given size and returns the index of the packet
+	 * which completed the message, or -1.
+	 */
+	private static int merge(final JsonMerger merger, final DataStream output,
+							 final byte[] message, final int packetLength) {
+		final DefaultMtuSplitter splitter = new DefaultMtuSplitter();
+		byte[] packet;
+		int index = 0;
+		while ((packet = splitter.chunk(message, index, packetLength)) != null) {
+			if (merger.merge(output, packet, index))
+				return index;
+			index++;
+		}
+		return -1;
+	}
+
+	@Test
+	public void merge_stringsAndEscapes() {
+		final byte[] message = "{\"a\":\"}]\\\"{\",\"b\":[1,{\"c\":\"\\\\\"}]}"
+				.getBytes(StandardCharsets.UTF_8);
+		final DataStream output = new DataStream();
+		assertEquals((message.length - 1) / 3, merge(new JsonMerger(), output, message, 3));
+		assertArrayEquals(message, output.toByteArray());
+	}
+
+	@Test
+	public void merge_utf8Split() {
+		// Multi-byte characters are split between 1-byte packets.
+		final byte[] message = "[\"zażółć\",\"{\",\"€𝄞\"]".getBytes(StandardCharsets.UTF_8);
+		final DataStream output = new DataStream();
+		assertEquals(message.length - 1, merge(new JsonMerger(), output, message, 1));
+		assertEquals("[\"zażółć\",\"{\",\"€𝄞\"]",
+				new String(output.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void merge_consecutiveMessages() {
+		final JsonMerger merger = new JsonMerger();
+		assertEquals(-1, merge(merger, new DataStream(), "{\"a\":[1,2".getBytes(), 20));
+		// A new message starts from scratch.
+		assertEquals(0, merge(merger, new DataStream(), "[]".getBytes(), 20));
+		assertEquals(0, merge(merger, new DataStream(), "  {}".getBytes(), 20));
+	}
+
+	@Test
+	public void merge_closingBracketBeforeStart() {
+		final DataStream output = new DataStream();
+		assertEquals(1, merge(new JsonMerger(), output, "]{\"a\":1}".getBytes(), 5));
+		assertEquals("]{\"a\":1}", new String(output.toByteArray()));
+	}
+
+	@Test
+	public void merge_largeMessage() {
+		// 1 MB in 20-byte packets; each packet is scanned only once.
+		final StringBuilder builder = new StringBuilder("[");
+		for (int i = 0; i < 40_000; ++i)
+			builder.append("{\"id\":").append(i).append(",\"v\":\"x\"},");
+		builder.append("{}]");
+		final byte[] message = builder.toString().getBytes();
+		final DataStream output = new DataStream();
+		final int last = merge(new JsonMerger(), output, message, 20);
+		assertEquals((message.length - 1) / 20, last);
+		assertTrue(output.size() == message.length);
+	}
+}
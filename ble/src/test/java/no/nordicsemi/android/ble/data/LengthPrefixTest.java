@@ -0,0 +1,139 @@
+package no.nordicsemi.android.ble.data;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LengthPrefixTest {
+	private final byte[] message = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13 };
+
+	private static byte[] message(final int length) {
+		final byte[] message = new byte[length];
+		for (int i = 0; i < length; ++i)
+			message[i] = (byte) (i * 31);
+		return message;
+	}
+
+	@Test
+	public void chunk_fixed() {
+		final LengthPrefixSplitter splitter = new LengthPrefixSplitter(LengthPrefix.fixed(Data.FORMAT_UINT16_BE));
+		final byte[] message = message(30);
+		final byte[] first = splitter.chunk(message, 0, 20);
+		assertEquals(20, first.length);
+		assertEquals(0, first[0]);
+		assertEquals(30, first[1]);
+		assertEquals(message[17], first[19]);
+		assertEquals(12, splitter.chunk(message, 1, 20).length);
+		assertNull(splitter.chunk(message, 2, 20));
+
+		final byte[] le = new LengthPrefixSplitter(LengthPrefix.fixed(Data.FORMAT_UINT24_LE))
+				.chunk(this.message, 0, 20);
+		assertArrayEquals(new byte[] { 13, 0, 0, 1, 2 }, Arrays.copyOf(le, 5));
+	}
+
+	@Test
+	public void chunk_varint() {
+		final LengthPrefixSplitter splitter = new LengthPrefixSplitter();
+		assertArrayEquals(new byte[] { 13, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13 }, splitter.chunk(message, 0, 20));
+		assertNull(splitter.chunk(message, 1, 20));
+
+		final byte[] first = splitter.chunk(message(300), 0, 20);
+		assertEquals((byte) 0xAC, first[0]);
+		assertEquals(0x02, first[1]);
+
+		// Empty message has only the header.
+		assertArrayEquals(new byte[] { 0 }, splitter.chunk(new byte[0], 0, 20));
+		assertNull(splitter.chunk(new byte[0], 1, 20));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void chunk_tooLong() {
+		new LengthPrefixSplitter(LengthPrefix.fixed(Data.FORMAT_UINT8)).chunk(message(256), 0, 20);
+	}
+
+	@Test
+	public void merge_roundTrip() {
+		for (final LengthPrefix prefix : new LengthPrefix[] {
+				LengthPrefix.varint(),
+				LengthPrefix.fixed(Data.FORMAT_UINT8),
+				LengthPrefix.fixed(Data.FORMAT_UINT16_LE),
+				LengthPrefix.fixed(Data.FORMAT_UINT32_BE) }) {
+			final byte[] message = message(200);
+			final LengthPrefixSplitter splitter = new LengthPrefixSplitter(prefix);
+			final LengthPrefixMerger merger = new LengthPrefixMerger(prefix);
+			final DataStream output = new DataStream();
+			byte[] packet;
+			int index = 0;
+			boolean complete = false;
+			while ((packet = splitter.chunk(message, index, 23)) != null) {
+				assertFalse(complete);
+				complete = merger.merge(output, packet, index++);
+			}
+			assertTrue(complete);
+			assertArrayEquals(message, output.toByteArray());
+		}
+	}
+
+	@Test
+	public void merge_severalFramesInPacket() {
+		final LengthPrefixMerger merger = new LengthPrefixMerger();
+		final List<String> messages = new ArrayList<>();
+		// The second frame's header with value 130 is split between packets,
+		// and the third frame is empty.
+		final byte[] big = message(130);
+		final ByteBuffer stream = ByteBuffer.allocate(200);
+		stream.put(new byte[] { 2, 1, 2 }).put(new byte[] { (byte) 0x82, 0x01 }).put(big)
+				.put((byte) 0).put(new byte[] { 1, 9 });
+		final byte[] all = new byte[stream.position()];
+		stream.flip();
+		stream.get(all);
+
+		DataStream output = new DataStream();
+		int offset = 0;
+		for (final int length : new int[] { 4, 100, all.length - 104 }) {
+			final byte[] packet = new byte[length];
+			System.arraycopy(all, offset, packet, 0, length);
+			offset += length;
+
+			boolean complete = merger.merge(output, packet, 0);
+			while (complete) {
+				final byte[] merged = output.toByteArray();
+				messages.add(merged.length + ":" + (merged.length > 0 ? merged[merged.length - 1] : ""));
+				output = new DataStream();
+				complete = merger.hasPendingData() && merger.merge(output, null, 0);
+			}
+		}
+		assertEquals(List.of("2:2", "130:" + big[129], "0:", "1:9"), messages);
+		assertFalse(merger.hasPendingData());
+	}
+
+	@Test
+	public void merge_large() {
+		final byte[] message = message(100_000);
+		final LengthPrefixSplitter splitter = new LengthPrefixSplitter();
+		final LengthPrefixMerger merger = new LengthPrefixMerger();
+		final DataStream output = new DataStream();
+		final ByteBuffer buffer = ByteBuffer.allocate(244);
+		int index = 0;
+		boolean complete = false;
+		while (true) {
+			buffer.clear();
+			if (!splitter.chunk(message, index, 244, buffer))
+				break;
+			final byte[] packet = new byte[buffer.position()];
+			System.arraycopy(buffer.array(), 0, packet, 0, packet.length);
+			complete = merger.merge(output, packet, index++);
+		}
+		assertTrue(complete);
+		assertArrayEquals(message, output.toByteArray());
+	}
+}